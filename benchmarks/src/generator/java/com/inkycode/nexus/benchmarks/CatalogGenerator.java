@@ -0,0 +1,121 @@
+package com.inkycode.nexus.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Properties;
+
+/**
+ *
+ * Generates the sources of a synthetic service catalog for benchmarking.
+ *
+ * The catalog is made of plugin providers split into groups. The providers of
+ * a group share a plugin service and are bound to a registry which is a
+ * factory of it, and every group but the first of each chain has its providers
+ * injected with the plugin service of the previous group. Each group also has
+ * a prototype scoped request service, injected with the groups plugin service
+ * and registry, so that obtaining it constructs and injects a provider.
+ *
+ */
+public class CatalogGenerator {
+
+    /**
+     * The package of the generated catalog.
+     */
+    public static final String PACKAGE = "com.inkycode.nexus.benchmarks.catalog";
+
+    /**
+     * The name of the properties file describing the generated catalog.
+     */
+    public static final String PROPERTIES = "catalog.properties";
+
+    private final File sourceDirectory;
+
+    private final int size;
+
+    private final int injectionDepth;
+
+    private final int factoryFanOut;
+
+    private CatalogGenerator(final File sourceDirectory, final int size, final int injectionDepth, final int factoryFanOut) {
+        this.sourceDirectory = sourceDirectory;
+        this.size = size;
+        this.injectionDepth = injectionDepth;
+        this.factoryFanOut = factoryFanOut;
+    }
+
+    private void generate() throws IOException {
+        final File packageDirectory = new File(this.sourceDirectory, PACKAGE.replace('.', File.separatorChar));
+
+        if (!packageDirectory.isDirectory() && !packageDirectory.mkdirs()) {
+            throw new IOException("Unable to create " + packageDirectory);
+        }
+
+        final int groups = (this.size + this.factoryFanOut - 1) / this.factoryFanOut;
+
+        for (int group = 0; group < groups; group++) {
+            this.write(packageDirectory, "Plugin" + group, "public interface Plugin" + group + " {\n\n    int id();\n}\n");
+
+            this.write(packageDirectory, "Registry" + group, "public interface Registry" + group + " {\n\n    int size();\n}\n");
+
+            this.write(packageDirectory, "RegistryImpl" + group, "import javax.inject.Inject;\n\nimport com.inkycode.nexus.annotations.Service;\n\n"
+                    + "@Service(factory = Plugin" + group + ".class)\n"
+                    + "public class RegistryImpl" + group + " implements Registry" + group + " {\n\n"
+                    + "    private int size;\n\n"
+                    + "    @Inject\n    public void bind(final Plugin" + group + " plugin) {\n        this.size++;\n    }\n\n"
+                    + "    @Override\n    public int size() {\n        return this.size;\n    }\n}\n");
+
+            this.write(packageDirectory, "Request" + group, "public interface Request" + group + " {\n\n    int id();\n}\n");
+
+            this.write(packageDirectory, "RequestImpl" + group, "import javax.inject.Inject;\n\nimport com.inkycode.nexus.Scope;\nimport com.inkycode.nexus.annotations.Service;\n\n"
+                    + "@Service(scope = Scope.PROTOTYPE)\n"
+                    + "public class RequestImpl" + group + " implements Request" + group + " {\n\n"
+                    + "    @Inject\n    Plugin" + group + " plugin;\n\n"
+                    + "    @Inject\n    Registry" + group + " registry;\n\n"
+                    + "    @Override\n    public int id() {\n        return this.plugin.id() + this.registry.size();\n    }\n}\n");
+        }
+
+        for (int provider = 0; provider < this.size; provider++) {
+            final int group = provider / this.factoryFanOut;
+            final boolean injected = group % this.injectionDepth != 0;
+
+            this.write(packageDirectory, "Provider" + provider, (injected ? "import javax.inject.Inject;\n\n" : "") + "import com.inkycode.nexus.annotations.Service;\n\n"
+                    + "@Service(priority = " + (provider % this.factoryFanOut) + ")\n"
+                    + "public class Provider" + provider + " implements Plugin" + group + " {\n\n"
+                    + (injected ? "    @Inject\n    Plugin" + (group - 1) + " parent;\n\n" : "")
+                    + "    @Override\n    public int id() {\n        return " + provider + ";\n    }\n}\n");
+        }
+
+        final Properties properties = new Properties();
+
+        properties.setProperty("size", String.valueOf(this.size));
+        properties.setProperty("groups", String.valueOf(groups));
+        properties.setProperty("injectionDepth", String.valueOf(this.injectionDepth));
+        properties.setProperty("factoryFanOut", String.valueOf(this.factoryFanOut));
+
+        try (OutputStream outputStream = new FileOutputStream(new File(this.sourceDirectory, PROPERTIES))) {
+            properties.store(outputStream, "Generated service catalog");
+        }
+    }
+
+    private void write(final File packageDirectory, final String name, final String body) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new File(packageDirectory, name + ".java"), "UTF-8")) {
+            writer.print("package " + PACKAGE + ";\n\n" + body);
+        }
+    }
+
+    /**
+     * Generates a catalog.
+     *
+     * @param args
+     *            the source directory, the number of plugin providers, the
+     *            injection depth and the factory fan out.
+     * @throws IOException
+     *             if the catalog could not be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        new CatalogGenerator(new File(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3])).generate();
+    }
+}
@@ -0,0 +1,63 @@
+package com.inkycode.nexus.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+/**
+ *
+ * A generated service catalog, loaded from the directory given by the
+ * nexus.catalogs system property.
+ *
+ */
+final class Catalog {
+
+    private static final String PACKAGE = "com.inkycode.nexus.benchmarks.catalog";
+
+    private final URL[] urls;
+
+    private final int groups;
+
+    Catalog(final int size) throws IOException {
+        final File directory = new File(System.getProperty("nexus.catalogs"), String.valueOf(size));
+
+        if (!directory.isDirectory()) {
+            throw new IOException("No catalog of size " + size + " in " + directory.getParent());
+        }
+
+        this.urls = new URL[] { directory.toURI().toURL() };
+
+        final Properties properties = new Properties();
+
+        try (InputStream inputStream = new FileInputStream(new File(directory, "catalog.properties"))) {
+            properties.load(inputStream);
+        }
+
+        this.groups = Integer.parseInt(properties.getProperty("groups"));
+    }
+
+    /**
+     * Creates a new class loader for the catalog, so that its classes are
+     * loaded afresh.
+     */
+    URLClassLoader newClassLoader() {
+        return new URLClassLoader(this.urls, Catalog.class.getClassLoader());
+    }
+
+    /**
+     * Loads the services of the given kind, one for each group of the catalog.
+     */
+    Class<?>[] loadServices(final ClassLoader classLoader, final String kind) throws ClassNotFoundException {
+        final Class<?>[] services = new Class<?>[this.groups];
+
+        for (int group = 0; group < this.groups; group++) {
+            services[group] = classLoader.loadClass(PACKAGE + "." + kind + group);
+        }
+
+        return services;
+    }
+}
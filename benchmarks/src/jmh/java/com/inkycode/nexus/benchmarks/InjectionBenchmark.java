@@ -0,0 +1,59 @@
+package com.inkycode.nexus.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.inkycode.nexus.Framework;
+
+/**
+ *
+ * Measures the construction and injection of prototype scoped services, each
+ * lookup of which creates and injects a new provider instance.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class InjectionBenchmark {
+
+    @Param({ "10", "10000" })
+    public int size;
+
+    private Framework framework;
+
+    private Class<?>[] services;
+
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException, ClassNotFoundException {
+        final Catalog catalog = new Catalog(this.size);
+        final ClassLoader classLoader = catalog.newClassLoader();
+
+        this.framework = Framework.newInstance(classLoader);
+        this.framework.start();
+        this.services = catalog.loadServices(classLoader, "Request");
+    }
+
+    @Benchmark
+    public Object getPrototype() {
+        this.index = this.index + 1 == this.services.length ? 0 : this.index + 1;
+
+        return this.framework.getService(this.services[this.index]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.inkycode.nexus.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.inkycode.nexus.Framework;
+
+/**
+ *
+ * Measures the throughput of service lookups on a started framework, with all
+ * available threads looking up services concurrently.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(Threads.MAX)
+@Fork(3)
+public class LookupBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int size;
+
+    private Framework framework;
+
+    private Class<?>[] services;
+
+    /**
+     * The position of each thread in the services to look up.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        Class<?> next(final Class<?>[] services) {
+            this.index = this.index + 1 == services.length ? 0 : this.index + 1;
+
+            return services[this.index];
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException, ClassNotFoundException {
+        final Catalog catalog = new Catalog(this.size);
+        final ClassLoader classLoader = catalog.newClassLoader();
+
+        this.framework = Framework.newInstance(classLoader);
+        this.framework.start();
+        this.services = catalog.loadServices(classLoader, "Plugin");
+    }
+
+    @Benchmark
+    public Object getService(final Cursor cursor) {
+        return this.framework.getService(cursor.next(this.services));
+    }
+
+    @Benchmark
+    public Object getMissingService() {
+        return this.framework.getService(Runnable.class);
+    }
+}
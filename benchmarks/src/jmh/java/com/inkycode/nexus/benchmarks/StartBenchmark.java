@@ -0,0 +1,91 @@
+package com.inkycode.nexus.benchmarks;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.inkycode.nexus.Framework;
+
+/**
+ *
+ * Measures the cold start of the framework, from scanning the catalog
+ * resources to notifying factories. Every invocation loads the catalog through
+ * a new class loader, so class loading is part of the measurement.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(3)
+public class StartBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "PARALLEL", "LAZY" })
+    public String mode;
+
+    private Catalog catalog;
+
+    private ExecutorService executor;
+
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        this.catalog = new Catalog(this.size);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        this.classLoader = this.catalog.newClassLoader();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        this.classLoader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        this.executor.shutdown();
+    }
+
+    @Benchmark
+    public Framework start() {
+        final Framework framework = Framework.newInstance(this.classLoader);
+
+        switch (this.mode) {
+        case "PARALLEL":
+            framework.start(this.executor);
+            break;
+        case "LAZY":
+            framework.setLazy(true);
+            framework.start();
+            break;
+        default:
+            framework.start();
+        }
+
+        return framework;
+    }
+}
@@ -0,0 +1,88 @@
+package com.inkycode.nexus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ *
+ * Dispatches the asynchronous method calls of services, the methods annotated
+ * with {@link com.inkycode.nexus.annotations.Async}, to an executor.
+ *
+ * Used by the generated implementations of service interfaces with
+ * asynchronous methods.
+ *
+ */
+public final class AsyncDispatcher {
+
+    /**
+     * The suffix appended to the binary name of a service interface to obtain
+     * the name of its generated asynchronous implementation.
+     */
+    public static final String SUFFIX = "$$Async";
+
+    private AsyncDispatcher() {
+    }
+
+    /**
+     * Calls a method on the given executor.
+     *
+     * @param executor
+     *            the executor to call the method on.
+     * @param call
+     *            calls the method on the service provider.
+     * @param <T>
+     *            the type of result.
+     * @return a future completed with the result of the future returned by the
+     *         method, or exceptionally if the method could not be called.
+     */
+    public static <T> CompletableFuture<T> dispatch(final Executor executor, final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    final CompletionStage<T> stage = call.call();
+
+                    if (stage == null) {
+                        future.complete(null);
+                    } else {
+                        stage.whenComplete((result, e) -> {
+                            if (e != null) {
+                                future.completeExceptionally(e);
+                            } else {
+                                future.complete(result);
+                            }
+                        });
+                    }
+                } catch (final Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Calls an asynchronous service interface method on a service provider.
+     *
+     * @param <T>
+     *            the type of result.
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+
+        /**
+         * Calls the method.
+         *
+         * @return the future returned by the method.
+         * @throws Throwable
+         *             if the method call failed.
+         */
+        CompletionStage<T> call() throws Throwable;
+    }
+}
@@ -0,0 +1,179 @@
+package com.inkycode.nexus;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.annotations.Async;
+
+/**
+ *
+ * Wraps service providers in the implementation generated for their service
+ * interface when it has asynchronous methods, the methods annotated with
+ * {@link Async}.
+ *
+ * The generated implementation of an interface is only looked up once.
+ * Interfaces without asynchronous methods have no asynchrony, so obtaining
+ * their providers costs nothing more. Interfaces which only inherit
+ * asynchronous methods are implemented along with each of their providers,
+ * and looked up by provider.
+ *
+ */
+final class Asynchrony {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Asynchrony.class);
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object.class, Executor.class);
+
+    private static final Asynchrony NONE = new Asynchrony(null);
+
+    private static final Asynchrony INHERITED = new Asynchrony(null);
+
+    private static final ClassValue<Asynchrony> ASYNCHRONIES = new ClassValue<Asynchrony>() {
+
+        @Override
+        protected Asynchrony computeValue(final Class<?> service) {
+            return findAsynchrony(service);
+        }
+
+    };
+
+    private final MethodHandle constructor;
+
+    private Asynchrony(final MethodHandle constructor) {
+        this.constructor = constructor;
+    }
+
+    /**
+     * Wraps the given service provider instance.
+     *
+     * @param instance
+     *            the service provider instance.
+     * @param executor
+     *            the executor to call asynchronous methods on.
+     * @return the wrapped instance, or the given instance if it could not be
+     *         wrapped.
+     */
+    Object dispatch(final Object instance, final Executor executor) {
+        try {
+            return this.constructor.invokeExact(instance, executor);
+        } catch (final Throwable e) {
+            LOG.error("Unable to dispatch service provider " + instance.getClass().getName() + " asynchronously", e);
+
+            return instance;
+        }
+    }
+
+    /**
+     * Returns the asynchrony of the given service and provider.
+     *
+     * @param service
+     *            the service interface.
+     * @param provider
+     *            the service provider.
+     * @return the asynchrony, or null if the service has no asynchronous
+     *         methods.
+     */
+    static Asynchrony forService(final Class<?> service, final Class<?> provider) {
+        Asynchrony asynchrony = ASYNCHRONIES.get(service);
+
+        if (asynchrony == INHERITED) {
+            asynchrony = findAsynchrony(service, provider.getName() + AsyncDispatcher.SUFFIX + "$" + service.getName().replace('.', '_'), provider.getClassLoader());
+        }
+
+        return asynchrony != NONE ? asynchrony : null;
+    }
+
+    /**
+     * Returns the executor asynchronous methods are called on when none is set
+     * for their service. On a runtime with virtual threads every call is given
+     * its own virtual thread, otherwise calls share a bounded pool of daemon
+     * threads with a bounded queue. Calls made while the queue is full run on
+     * the callers thread, which slows callers down rather than dropping calls
+     * or queueing without limit.
+     *
+     * @return the default executor.
+     */
+    static Executor getDefaultExecutor() {
+        return DefaultExecutor.EXECUTOR;
+    }
+
+    private static Asynchrony findAsynchrony(final Class<?> service) {
+        if (!service.isInterface() || !hasAsyncMethods(service.getMethods())) {
+            return NONE;
+        }
+
+        if (!hasAsyncMethods(service.getDeclaredMethods())) {
+            return INHERITED;
+        }
+
+        return findAsynchrony(service, service.getName() + AsyncDispatcher.SUFFIX, service.getClassLoader());
+    }
+
+    private static Asynchrony findAsynchrony(final Class<?> service, final String asyncClassName, final ClassLoader classLoader) {
+        try {
+            final Class<?> asyncClass = Class.forName(asyncClassName, true, classLoader);
+
+            return new Asynchrony(MethodHandles.publicLookup().findConstructor(asyncClass, MethodType.methodType(void.class, Object.class, Executor.class)).asType(CONSTRUCTOR_TYPE));
+        } catch (final ReflectiveOperationException e) {
+            LOG.error("Unable to find the asynchronous implementation of " + service.getName() + ", check that the annotation processor ran. Its methods are called synchronously.");
+
+            return NONE;
+        }
+    }
+
+    private static boolean hasAsyncMethods(final Method[] methods) {
+        for (final Method method : methods) {
+            if (method.isAnnotationPresent(Async.class)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class DefaultExecutor {
+
+        private static final Executor EXECUTOR = newExecutor();
+
+        private static Executor newExecutor() {
+            // Virtual threads are looked up reflectively, so that the
+            // framework still runs on older runtimes.
+            try {
+                final MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+
+                return (ExecutorService) factory.invoke();
+            } catch (final Throwable e) {
+                LOG.debug("Virtual threads are not available, asynchronous methods are called on a bounded pool");
+            }
+
+            final int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+            final AtomicInteger count = new AtomicInteger();
+            final ThreadFactory threadFactory = runnable -> {
+                final Thread thread = new Thread(runnable, "nexus-async-" + count.incrementAndGet());
+
+                thread.setDaemon(true);
+
+                return thread;
+            };
+
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(threads * 64), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+
+            executor.allowCoreThreadTimeOut(true);
+
+            return executor;
+        }
+    }
+}
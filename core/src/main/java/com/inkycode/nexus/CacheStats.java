@@ -0,0 +1,63 @@
+package com.inkycode.nexus;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Counts the hits, misses and evictions of the caches of a cached service
+ * method, across every provider instance of the service.
+ *
+ */
+public final class CacheStats {
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final LongAdder evictions;
+
+    CacheStats() {
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Returns the number of calls which found a cached result.
+     *
+     * @return the number of hits.
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Returns the number of calls which found no cached result.
+     *
+     * @return the number of misses.
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Returns the number of results evicted to make room for others.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    void recordHit() {
+        this.hits.increment();
+    }
+
+    void recordMiss() {
+        this.misses.increment();
+    }
+
+    void recordEviction() {
+        this.evictions.increment();
+    }
+}
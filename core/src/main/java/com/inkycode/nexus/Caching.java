@@ -0,0 +1,124 @@
+package com.inkycode.nexus;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.annotations.Cached;
+
+/**
+ *
+ * Wraps service providers in the implementation generated for their service
+ * interface when it has cached methods, the methods annotated with
+ * {@link Cached}.
+ *
+ * The generated implementation of an interface is only looked up once.
+ * Interfaces without cached methods have no caching, so obtaining their
+ * providers costs nothing more. Interfaces which only inherit cached methods
+ * are implemented along with each of their providers, and looked up by
+ * provider.
+ *
+ */
+final class Caching {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Caching.class);
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object.class, Function.class);
+
+    private static final Caching NONE = new Caching(null);
+
+    private static final Caching INHERITED = new Caching(null);
+
+    private static final ClassValue<Caching> CACHINGS = new ClassValue<Caching>() {
+
+        @Override
+        protected Caching computeValue(final Class<?> service) {
+            return findCaching(service);
+        }
+
+    };
+
+    private final MethodHandle constructor;
+
+    private Caching(final MethodHandle constructor) {
+        this.constructor = constructor;
+    }
+
+    /**
+     * Wraps the given service provider instance, with caches of its own.
+     *
+     * @param instance
+     *            the service provider instance.
+     * @param cacheStats
+     *            returns the statistics to record for each cached method.
+     * @return the wrapped instance, or the given instance if it could not be
+     *         wrapped.
+     */
+    Object cache(final Object instance, final Function<String, CacheStats> cacheStats) {
+        try {
+            return this.constructor.invokeExact(instance, cacheStats);
+        } catch (final Throwable e) {
+            LOG.error("Unable to cache service provider " + instance.getClass().getName(), e);
+
+            return instance;
+        }
+    }
+
+    /**
+     * Returns the caching of the given service and provider.
+     *
+     * @param service
+     *            the service interface.
+     * @param provider
+     *            the service provider.
+     * @return the caching, or null if the service has no cached methods.
+     */
+    static Caching forService(final Class<?> service, final Class<?> provider) {
+        Caching caching = CACHINGS.get(service);
+
+        if (caching == INHERITED) {
+            caching = findCaching(service, provider.getName() + MethodCache.SUFFIX + "$" + service.getName().replace('.', '_'), provider.getClassLoader());
+        }
+
+        return caching != NONE ? caching : null;
+    }
+
+    private static Caching findCaching(final Class<?> service) {
+        if (!service.isInterface() || !hasCachedMethods(service.getMethods())) {
+            return NONE;
+        }
+
+        if (!hasCachedMethods(service.getDeclaredMethods())) {
+            return INHERITED;
+        }
+
+        return findCaching(service, service.getName() + MethodCache.SUFFIX, service.getClassLoader());
+    }
+
+    private static Caching findCaching(final Class<?> service, final String cachedClassName, final ClassLoader classLoader) {
+        try {
+            final Class<?> cachedClass = Class.forName(cachedClassName, true, classLoader);
+
+            return new Caching(MethodHandles.publicLookup().findConstructor(cachedClass, MethodType.methodType(void.class, Object.class, Function.class)).asType(CONSTRUCTOR_TYPE));
+        } catch (final ReflectiveOperationException e) {
+            LOG.error("Unable to find the cached implementation of " + service.getName() + ", check that the annotation processor ran. Its methods are not cached.");
+
+            return NONE;
+        }
+    }
+
+    private static boolean hasCachedMethods(final Method[] methods) {
+        for (final Method method : methods) {
+            if (method.isAnnotationPresent(Cached.class)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,120 @@
+package com.inkycode.nexus;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.descriptors.ServiceDescriptor;
+import com.inkycode.nexus.descriptors.ServiceIndex;
+
+/**
+ *
+ * Builds a service catalog at build time, a single service index holding the
+ * services of every class path root in the order the framework registers
+ * them.
+ *
+ * When catalogs are enabled and a catalog is on the class path, the framework
+ * reads it instead of scanning every class path root, so the catalog must be
+ * rebuilt whenever the class path changes. Services whose classes can not be
+ * loaded when the catalog is built are left out of it.
+ *
+ */
+public final class CatalogBuilder {
+
+    /**
+     * The location of the service catalog resource.
+     */
+    public static final String RESOURCE = "META-INF/services.catalog";
+
+    /**
+     * The system property which enables reading the service catalog.
+     */
+    public static final String PROPERTY = "nexus.catalog";
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogBuilder.class);
+
+    private CatalogBuilder() {
+    }
+
+    /**
+     * Reads the service descriptors of every class path root of the given
+     * class loader, ignoring any existing catalog.
+     *
+     * @param classLoader
+     *            the class loader to read service descriptors from.
+     * @return the service descriptors, in the order the framework registers
+     *         them.
+     * @throws IOException
+     *             if the class path could not be scanned.
+     */
+    public static List<ServiceDescriptor> build(final ClassLoader classLoader) throws IOException {
+        final List<ServiceDescriptor> serviceDescriptors = new ArrayList<ServiceDescriptor>();
+
+        for (final ServiceDescriptor[] rootServiceDescriptors : Framework.newInstance(classLoader).scanServices(ForkJoinPool.commonPool(), false, false)) {
+            for (final ServiceDescriptor serviceDescriptor : rootServiceDescriptors) {
+                if (serviceDescriptor.getServiceClass(classLoader) == null || serviceDescriptor.getProviderClass(classLoader) == null) {
+                    LOG.warn("Unable to load service provider " + serviceDescriptor.getProvider().getName() + ", leaving it out of the catalog");
+
+                    continue;
+                }
+
+                serviceDescriptors.add(serviceDescriptor);
+            }
+        }
+
+        return serviceDescriptors;
+    }
+
+    /**
+     * Builds a service catalog from the class path of the given class loader
+     * and writes it below the given directory.
+     *
+     * @param directory
+     *            the directory to write the catalog resource to.
+     * @param classLoader
+     *            the class loader to read service descriptors from.
+     * @throws IOException
+     *             if the class path could not be scanned or the catalog could
+     *             not be written.
+     */
+    public static void write(final File directory, final ClassLoader classLoader) throws IOException {
+        final File catalogFile = new File(directory, RESOURCE);
+
+        if (!catalogFile.getParentFile().isDirectory() && !catalogFile.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create " + catalogFile.getParent());
+        }
+
+        final List<ServiceDescriptor> serviceDescriptors = build(classLoader);
+
+        try (OutputStream outputStream = new FileOutputStream(catalogFile)) {
+            ServiceIndex.write(outputStream, serviceDescriptors);
+        }
+
+        LOG.info("Wrote " + serviceDescriptors.size() + " services to " + catalogFile);
+    }
+
+    /**
+     * Builds a service catalog from the class path this class is loaded from.
+     *
+     * @param args
+     *            the directory to write the catalog resource to.
+     * @throws IOException
+     *             if the class path could not be scanned or the catalog could
+     *             not be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: " + CatalogBuilder.class.getName() + " <output directory>");
+            System.exit(1);
+        }
+
+        write(new File(args[0]), CatalogBuilder.class.getClassLoader());
+    }
+}
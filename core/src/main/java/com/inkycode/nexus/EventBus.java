@@ -0,0 +1,324 @@
+package com.inkycode.nexus;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.annotations.Subscribe;
+
+/**
+ *
+ * Carries events between the service providers of a framework, to their
+ * methods annotated with {@link Subscribe}.
+ *
+ * An event is delivered to every subscribed method whose parameter type it is
+ * an instance of, in the order the providers were subscribed. Published events
+ * are delivered on the publishing thread. Posted events are added to a ring
+ * and delivered in order on the buses own thread, which takes every event in
+ * the ring at once before it waits again.
+ *
+ * Neither path locks or allocates per event. The methods an event class is
+ * delivered to are resolved once, until providers are subscribed or
+ * unsubscribed, and events are passed to them by generated subscribers.
+ *
+ * The buses thread is only started once an event is posted. When the framework
+ * is stopped, the bus drops its subscriptions and stops its thread, along with
+ * the events still in the ring.
+ *
+ */
+public final class EventBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventBus.class);
+
+    private static final int CAPACITY = 1 << 16;
+
+    private static final int BATCH_SIZE = 1024;
+
+    private static final int SPINS = 64;
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private static final ClassValue<Subscriber<Object>> SUBSCRIBERS = new ClassValue<Subscriber<Object>>() {
+
+        @Override
+        protected Subscriber<Object> computeValue(final Class<?> providerClass) {
+            return findSubscriber(providerClass);
+        }
+
+    };
+
+    private final Object lock;
+
+    private final ConcurrentMap<Class<?>, Subscription[]> resolvedSubscriptions;
+
+    private final Consumer<Object> delivery;
+
+    // Only created once an event is posted, and published by the consumer.
+    private EventRing ring;
+
+    private volatile Subscription[] subscriptions;
+
+    private volatile Thread consumer;
+
+    private volatile boolean sleeping;
+
+    EventBus() {
+        this.lock = new Object();
+        this.resolvedSubscriptions = new ConcurrentHashMap<Class<?>, Subscription[]>();
+        this.delivery = this::publish;
+        this.subscriptions = NO_SUBSCRIPTIONS;
+    }
+
+    /**
+     * Delivers the given event to its subscribers on the calling thread.
+     *
+     * @param event
+     *            the event.
+     */
+    public void publish(final Object event) {
+        if (event == null) {
+            throw new NullPointerException("event");
+        }
+
+        Subscription[] subscriptions = this.resolvedSubscriptions.get(event.getClass());
+
+        if (subscriptions == null) {
+            subscriptions = this.resolve(event.getClass());
+        }
+
+        for (final Subscription subscription : subscriptions) {
+            try {
+                subscription.subscriber.dispatch(subscription.instance, subscription.index, event);
+            } catch (final Throwable e) {
+                LOG.error("Subscriber " + subscription.instance.getClass().getName() + " failed to handle " + event.getClass().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Delivers the given event to its subscribers on the buses thread, in the
+     * order events are posted. Waits for room if the bus is full, and delivers
+     * the event straight away if posted from the buses thread.
+     *
+     * @param event
+     *            the event.
+     */
+    public void post(final Object event) {
+        if (event == null) {
+            throw new NullPointerException("event");
+        }
+
+        Thread consumer = this.consumer;
+
+        if (consumer == null) {
+            consumer = this.startConsumer();
+        }
+
+        if (consumer == Thread.currentThread()) {
+            this.publish(event);
+
+            return;
+        }
+
+        while (!this.ring.offer(event)) {
+            // The event is dropped if the bus is closed while it waits.
+            if (this.consumer != consumer) {
+                return;
+            }
+
+            LockSupport.unpark(consumer);
+            Thread.yield();
+        }
+
+        if (this.sleeping) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Subscribes the methods of the given service provider instance.
+     */
+    void subscribe(final Object instance) {
+        final Subscriber<Object> subscriber = SUBSCRIBERS.get(instance.getClass());
+
+        if (subscriber == null) {
+            return;
+        }
+
+        final Class<?>[] eventTypes = subscriber.getEventTypes();
+
+        synchronized (this.lock) {
+            final Subscription[] subscriptions = Arrays.copyOf(this.subscriptions, this.subscriptions.length + eventTypes.length);
+
+            for (int i = 0; i < eventTypes.length; i++) {
+                subscriptions[this.subscriptions.length + i] = new Subscription(instance, subscriber, i, eventTypes[i]);
+            }
+
+            this.subscriptions = subscriptions;
+            this.resolvedSubscriptions.clear();
+        }
+    }
+
+    /**
+     * Unsubscribes the methods of the given service provider instance.
+     */
+    void unsubscribe(final Object instance) {
+        synchronized (this.lock) {
+            final List<Subscription> subscriptions = new ArrayList<Subscription>(Arrays.asList(this.subscriptions));
+
+            if (subscriptions.removeIf(subscription -> subscription.instance == instance)) {
+                this.subscriptions = subscriptions.toArray(new Subscription[subscriptions.size()]);
+                this.resolvedSubscriptions.clear();
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes every service provider instance and stops the buses
+     * thread, which is started again by the next posted event.
+     */
+    void close() {
+        final Thread consumer;
+
+        synchronized (this.lock) {
+            consumer = this.consumer;
+
+            this.consumer = null;
+            this.subscriptions = NO_SUBSCRIPTIONS;
+            this.resolvedSubscriptions.clear();
+        }
+
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private Subscription[] resolve(final Class<?> eventClass) {
+        final Subscription[] subscriptions = this.subscriptions;
+        final List<Subscription> resolvedSubscriptions = new ArrayList<Subscription>();
+
+        for (final Subscription subscription : subscriptions) {
+            if (subscription.eventType.isAssignableFrom(eventClass)) {
+                resolvedSubscriptions.add(subscription);
+            }
+        }
+
+        final Subscription[] resolved = resolvedSubscriptions.toArray(new Subscription[resolvedSubscriptions.size()]);
+
+        this.resolvedSubscriptions.put(eventClass, resolved);
+
+        // Providers subscribed while resolving may have been missed, their
+        // subscription clears the resolved subscriptions only before or after
+        // they are put.
+        if (this.subscriptions != subscriptions) {
+            this.resolvedSubscriptions.remove(eventClass, resolved);
+        }
+
+        return resolved;
+    }
+
+    private Thread startConsumer() {
+        synchronized (this.lock) {
+            if (this.consumer == null) {
+                final EventRing ring = new EventRing(CAPACITY);
+                final Thread consumer = new Thread(() -> this.consume(ring), "nexus-events");
+
+                consumer.setDaemon(true);
+
+                this.ring = ring;
+
+                // Published before it starts, as it runs for as long as it is
+                // the consumer of the bus.
+                this.consumer = consumer;
+
+                consumer.start();
+            }
+
+            return this.consumer;
+        }
+    }
+
+    private void consume(final EventRing ring) {
+        int idle = 0;
+
+        // Runs until the bus is closed, which unparks it.
+        while (this.consumer == Thread.currentThread()) {
+            if (ring.drain(this.delivery, BATCH_SIZE) > 0) {
+                idle = 0;
+
+                continue;
+            }
+
+            // Spins a little before sleeping, as events tend to come in
+            // bursts.
+            if (++idle < SPINS) {
+                Thread.yield();
+
+                continue;
+            }
+
+            this.sleeping = true;
+
+            if (ring.isEmpty() && this.consumer == Thread.currentThread()) {
+                LockSupport.park(this);
+            }
+
+            this.sleeping = false;
+
+            idle = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Subscriber<Object> findSubscriber(final Class<?> providerClass) {
+        if (!hasSubscribedMethods(providerClass)) {
+            return null;
+        }
+
+        try {
+            return (Subscriber<Object>) Class.forName(providerClass.getName() + Subscriber.SUFFIX, true, providerClass.getClassLoader()).newInstance();
+        } catch (final ReflectiveOperationException | ClassCastException e) {
+            LOG.error("Unable to find the subscriber of " + providerClass.getName() + ", check that the annotation processor ran. It receives no events.");
+
+            return null;
+        }
+    }
+
+    private static boolean hasSubscribedMethods(final Class<?> providerClass) {
+        for (Class<?> type = providerClass; type != null; type = type.getSuperclass()) {
+            for (final Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Subscribe.class)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static final class Subscription {
+
+        private final Object instance;
+
+        private final Subscriber<Object> subscriber;
+
+        private final int index;
+
+        private final Class<?> eventType;
+
+        private Subscription(final Object instance, final Subscriber<Object> subscriber, final int index, final Class<?> eventType) {
+            this.instance = instance;
+            this.subscriber = subscriber;
+            this.index = index;
+            this.eventType = eventType;
+        }
+    }
+}
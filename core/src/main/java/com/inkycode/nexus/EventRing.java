@@ -0,0 +1,127 @@
+package com.inkycode.nexus;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ *
+ * A bounded ring of events with many publishers and a single consumer, which
+ * neither locks nor allocates.
+ *
+ * Each slot carries a sequence telling publishers and the consumer whose turn
+ * it is. A publisher claims the next position by compare and set, stores its
+ * event and then publishes the slot by advancing its sequence. The consumer
+ * takes every published event in order, and hands each slot back to the
+ * publishers of the next lap as soon as it has taken its event.
+ *
+ */
+final class EventRing {
+
+    private final Object[] events;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail;
+
+    private final int mask;
+
+    // Only read and written by the consumer.
+    private long head;
+
+    /**
+     * Generates a new ring.
+     *
+     * @param capacity
+     *            the number of events the ring holds, a power of two.
+     */
+    EventRing(final int capacity) {
+        this.events = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.tail = new AtomicLong();
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an event to the ring. Safe to call from any thread.
+     *
+     * @param event
+     *            the event.
+     * @return true if the event was added, false if the ring is full.
+     */
+    boolean offer(final Object event) {
+        long position = this.tail.get();
+
+        for (;;) {
+            final int index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.events[index] = event;
+
+                    // A volatile write, so that a consumer about to sleep
+                    // either sees the event or is seen sleeping.
+                    this.sequences.set(index, position + 1);
+
+                    return true;
+                }
+
+                position = this.tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Passes the published events to the given consumer, in the order they
+     * were added. Must only be called from the consumer thread.
+     *
+     * @param consumer
+     *            the consumer.
+     * @param limit
+     *            the maximum number of events to pass.
+     * @return the number of events passed.
+     */
+    int drain(final Consumer<Object> consumer, final int limit) {
+        int count = 0;
+
+        while (count < limit) {
+            final long position = this.head;
+            final int index = (int) position & this.mask;
+
+            if (this.sequences.get(index) != position + 1) {
+                break;
+            }
+
+            final Object event = this.events[index];
+
+            this.events[index] = null;
+            this.sequences.lazySet(index, position + this.events.length);
+            this.head = position + 1;
+
+            consumer.accept(event);
+
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Determines if the ring has no published events. Must only be called from
+     * the consumer thread.
+     *
+     * @return true if the ring is empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return this.sequences.get((int) this.head & this.mask) != this.head + 1;
+    }
+}
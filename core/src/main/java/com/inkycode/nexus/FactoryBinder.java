@@ -0,0 +1,233 @@
+package com.inkycode.nexus;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.annotations.Unbind;
+
+/**
+ *
+ * Binds service provider instances to a factory through the factories bind
+ * methods, the methods annotated with {@link Inject} which take a single
+ * parameter, and unbinds them through the methods annotated with
+ * {@link Unbind}.
+ *
+ * A bind or unbind method which takes a collection of service providers is a
+ * batch method, called once with every provider being bound or unbound which
+ * it accepts, in order of selection. A factory can so build its lookup
+ * structures in a single pass rather than one provider at a time.
+ *
+ * The methods of a factory class are only looked up once, and the methods
+ * which accept a given service provider class are only resolved once, so
+ * binding is a table lookup followed by direct method handle calls.
+ *
+ */
+final class FactoryBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FactoryBinder.class);
+
+    private static final MethodType BIND_METHOD_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<FactoryBinder> BINDERS = new ClassValue<FactoryBinder>() {
+
+        @Override
+        protected FactoryBinder computeValue(final Class<?> factoryClass) {
+            return new FactoryBinder(factoryClass);
+        }
+
+    };
+
+    private final BindMethods bindMethods;
+
+    private final BindMethods unbindMethods;
+
+    private FactoryBinder(final Class<?> factoryClass) {
+        this.bindMethods = new BindMethods(factoryClass, Inject.class);
+        this.unbindMethods = new BindMethods(factoryClass, Unbind.class);
+    }
+
+    /**
+     * Binds the given service provider instances to the given factory.
+     *
+     * @param factoryInstance
+     *            the factory.
+     * @param serviceInstances
+     *            the service provider instances to bind, in order of
+     *            selection.
+     */
+    void bind(final Object factoryInstance, final List<?> serviceInstances) {
+        this.bindMethods.invoke(factoryInstance, serviceInstances);
+    }
+
+    /**
+     * Unbinds the given service provider instances from the given factory.
+     *
+     * @param factoryInstance
+     *            the factory.
+     * @param serviceInstances
+     *            the service provider instances to unbind, in order of
+     *            selection.
+     */
+    void unbind(final Object factoryInstance, final List<?> serviceInstances) {
+        this.unbindMethods.invoke(factoryInstance, serviceInstances);
+    }
+
+    /**
+     * Returns the binder for the given factory class.
+     *
+     * @param factoryClass
+     *            the factory class.
+     * @return the binder.
+     */
+    static FactoryBinder forClass(final Class<?> factoryClass) {
+        return BINDERS.get(factoryClass);
+    }
+
+    private static final class BindMethods {
+
+        private final Class<?>[] parameterTypes;
+
+        private final MethodHandle[] methods;
+
+        private final ConcurrentMap<Class<?>, MethodHandle[]> methodMap;
+
+        private final Class<?>[] batchElementTypes;
+
+        private final MethodHandle[] batchMethods;
+
+        private BindMethods(final Class<?> factoryClass, final Class<? extends Annotation> annotation) {
+            final List<Class<?>> parameterTypes = new ArrayList<Class<?>>();
+            final List<MethodHandle> methods = new ArrayList<MethodHandle>();
+            final List<Class<?>> batchElementTypes = new ArrayList<Class<?>>();
+            final List<MethodHandle> batchMethods = new ArrayList<MethodHandle>();
+
+            for (final Method method : factoryClass.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(annotation) && method.getParameterTypes().length == 1) {
+                    final Class<?> parameterType = method.getParameterTypes()[0];
+                    final boolean batch = parameterType.isAssignableFrom(List.class) && parameterType != Object.class;
+
+                    try {
+                        final MethodHandle methodHandle = MethodHandles.lookup().unreflect(method).asType(BIND_METHOD_TYPE);
+
+                        if (batch) {
+                            batchMethods.add(methodHandle);
+                            batchElementTypes.add(getElementType(method.getGenericParameterTypes()[0]));
+                        } else {
+                            methods.add(methodHandle);
+                            parameterTypes.add(parameterType);
+                        }
+                    } catch (final IllegalAccessException e) {
+                        LOG.error("Unable to access service instance bind method " + method.getName() + " of " + factoryClass.getName() + ", check the method signature.");
+                    }
+                }
+            }
+
+            this.parameterTypes = parameterTypes.toArray(new Class<?>[parameterTypes.size()]);
+            this.methods = methods.toArray(new MethodHandle[methods.size()]);
+            this.methodMap = new ConcurrentHashMap<Class<?>, MethodHandle[]>();
+            this.batchElementTypes = batchElementTypes.toArray(new Class<?>[batchElementTypes.size()]);
+            this.batchMethods = batchMethods.toArray(new MethodHandle[batchMethods.size()]);
+        }
+
+        private void invoke(final Object factoryInstance, final List<?> serviceInstances) {
+            for (final Object serviceInstance : serviceInstances) {
+                this.invoke(factoryInstance, serviceInstance);
+            }
+
+            for (int i = 0; i < this.batchMethods.length; i++) {
+                final Collection<?> batch = this.getBatch(this.batchElementTypes[i], serviceInstances);
+
+                if (batch.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    this.batchMethods[i].invokeExact(factoryInstance, (Object) batch);
+                } catch (final Throwable e) {
+                    LOG.error("Unable to invoke service instance batch bind method, check the method signature.", e);
+                }
+            }
+        }
+
+        private void invoke(final Object factoryInstance, final Object serviceInstance) {
+            MethodHandle[] methods = this.methodMap.get(serviceInstance.getClass());
+
+            if (methods == null) {
+                methods = this.methodMap.computeIfAbsent(serviceInstance.getClass(), this::getMethods);
+            }
+
+            for (final MethodHandle method : methods) {
+                try {
+                    method.invokeExact(factoryInstance, serviceInstance);
+                } catch (final Throwable e) {
+                    LOG.error("Unable to invoke service instance bind method, check the method signature.", e);
+                }
+            }
+        }
+
+        private Collection<?> getBatch(final Class<?> elementType, final List<?> serviceInstances) {
+            for (final Object serviceInstance : serviceInstances) {
+                if (!elementType.isInstance(serviceInstance)) {
+                    // Only copied when some providers are not accepted, which
+                    // is rare as a factory is bound to the providers of its
+                    // service.
+                    final List<Object> batch = new ArrayList<Object>(serviceInstances.size());
+
+                    for (final Object acceptedInstance : serviceInstances) {
+                        if (elementType.isInstance(acceptedInstance)) {
+                            batch.add(acceptedInstance);
+                        }
+                    }
+
+                    return Collections.unmodifiableList(batch);
+                }
+            }
+
+            return Collections.unmodifiableList(serviceInstances);
+        }
+
+        private MethodHandle[] getMethods(final Class<?> serviceClass) {
+            final List<MethodHandle> methods = new ArrayList<MethodHandle>();
+
+            for (int i = 0; i < this.parameterTypes.length; i++) {
+                if (this.parameterTypes[i].isAssignableFrom(serviceClass)) {
+                    methods.add(this.methods[i]);
+                }
+            }
+
+            return methods.toArray(new MethodHandle[methods.size()]);
+        }
+
+        private static Class<?> getElementType(final Type collectionType) {
+            Type elementType = collectionType instanceof ParameterizedType ? ((ParameterizedType) collectionType).getActualTypeArguments()[0] : Object.class;
+
+            if (elementType instanceof WildcardType) {
+                elementType = ((WildcardType) elementType).getUpperBounds()[0];
+            }
+
+            if (elementType instanceof ParameterizedType) {
+                elementType = ((ParameterizedType) elementType).getRawType();
+            }
+
+            // Type variables accept any provider.
+            return elementType instanceof Class ? (Class<?>) elementType : Object.class;
+        }
+    }
+}
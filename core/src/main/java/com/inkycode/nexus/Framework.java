@@ -1,247 +1,2317 @@
 package com.inkycode.nexus;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Enumeration;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.ServiceLoader;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.inkycode.nexus.descriptors.ServiceDescriptor;
+import com.inkycode.nexus.descriptors.ServiceIndex;
 
 /**
  *
- * The Framework class is a singleton to be used at runtime.
+ * The Framework class is a singleton to be used at runtime. Isolated
+ * instances, each with their own registry, can be generated as well.
  *
  */
 public class Framework {
 
     private static Logger LOG = LoggerFactory.getLogger(Framework.class);
 
-    private static Framework framework;
+    private static final String SERVICES_RESOURCE = "META-INF/services.json";
 
-    private final Map<Class<?>, Set<ServiceInstance<?>>> serviceMap;
+    private static final ObjectReader SERVICES_READER = new ObjectMapper().reader().withType(ServiceDescriptor[].class);
 
-    private final Map<Class<?>, Set<ServiceInstance<?>>> serviceFactoryMap;
+    private static final Executor CALLER_EXECUTOR = Runnable::run;
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private final ClassLoader classLoader;
+
+    private final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap;
+
+    private final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceFactoryMap;
+
+    // Ids of the services of this framework, which index the providers.
+    private final ServiceKey.Ids serviceIds;
+
+    private volatile ServiceReference<?>[] providers;
+
+    private volatile List<?>[] providerLists;
+
+    private final Object registryLock;
+
+    private final Object lazyLock;
+
+    private final ThreadLocal<RequestScope> requestScopes;
+
+    // Set on threads which construct, inject or bind providers for a change
+    // of the registry, to the providers whose activation is deferred until the
+    // registry lock is released.
+    private final ThreadLocal<List<ServiceInstance<?>>> pendingActivations;
+
+    private final FrameworkMetrics metrics;
+
+    private final EventBus eventBus;
+
+    private volatile FrameworkListener[] listeners;
+
+    // Written before the framework is started and read without the registry
+    // lock afterwards, like the lazy proxies setting.
+    private final Map<ServiceKey<?>, Executor> asyncExecutors;
+
+    // Interceptors which are not provided as services, constructed, activated
+    // and deactivated once per framework like singleton providers.
+    private final ConcurrentMap<Class<?>, ServiceInstance<?>> interceptorInstances;
+
+    private Executor asyncExecutor;
+
+    private int sequence;
+
+    private boolean lazy;
+
+    // Read without the registry lock only after reading the providers, which
+    // are published after it is written.
+    private boolean lazyProxies;
+
+    private boolean catalog;
+
+    private boolean started;
+
+    // Completed once the providers are activated after the framework is
+    // started, so that stopping it waits for their activation first.
+    private CompletableFuture<Void> activation;
+
+    private boolean listenersLoaded;
 
     /**
-     * Factory method to generate a Framework instance.
+     * Factory method to obtain the shared Framework instance.
+     *
+     * The instance is created on first use, safely from any thread.
      *
-     * @return a Framework instance.
+     * @return the shared Framework instance.
      */
     public static Framework getInstance() {
-        if (framework == null) {
-            framework = new Framework();
+        return Holder.FRAMEWORK;
+    }
+
+    /**
+     * Factory method to generate an isolated Framework instance, with its own
+     * registry, which loads services from the same class loader as the shared
+     * instance.
+     *
+     * @return a new Framework instance.
+     */
+    public static Framework newInstance() {
+        return new Framework(Framework.class.getClassLoader());
+    }
+
+    /**
+     * Factory method to generate an isolated Framework instance, with its own
+     * registry, which loads services from the given class loader.
+     *
+     * @param classLoader
+     *            the class loader to load services from.
+     * @return a new Framework instance.
+     */
+    public static Framework newInstance(final ClassLoader classLoader) {
+        return new Framework(classLoader);
+    }
+
+    private Framework(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        this.serviceMap = new HashMap<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>>();
+        this.serviceFactoryMap = new HashMap<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>>();
+        this.serviceIds = new ServiceKey.Ids();
+        this.providers = new ServiceReference<?>[0];
+        this.providerLists = new List<?>[0];
+        this.registryLock = new Object();
+        this.lazyLock = new Object();
+        this.requestScopes = new ThreadLocal<RequestScope>();
+        this.pendingActivations = new ThreadLocal<List<ServiceInstance<?>>>();
+        this.metrics = new FrameworkMetrics();
+        this.eventBus = new EventBus();
+        this.listeners = new FrameworkListener[] { this.metrics };
+        this.asyncExecutors = new HashMap<ServiceKey<?>, Executor>();
+        this.interceptorInstances = new ConcurrentHashMap<Class<?>, ServiceInstance<?>>();
+        this.catalog = Boolean.getBoolean(CatalogBuilder.PROPERTY);
+        this.activation = COMPLETED;
+    }
+
+    /**
+     * Adds a listener to be notified of where the framework spends its time.
+     *
+     * @param listener
+     *            the listener.
+     */
+    public void addListener(final FrameworkListener listener) {
+        this.checkNotChanging();
+
+        synchronized (this.registryLock) {
+            final FrameworkListener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+
+            listeners[listeners.length - 1] = listener;
+
+            this.listeners = listeners;
         }
+    }
 
-        return framework;
+    /**
+     * Returns the metrics of the framework.
+     *
+     * @return the metrics.
+     */
+    public FrameworkMetricsMXBean getMetrics() {
+        return this.metrics;
     }
 
-    private Framework() {
-        this.serviceMap = new HashMap<Class<?>, Set<ServiceInstance<?>>>();
-        this.serviceFactoryMap = new HashMap<Class<?>, Set<ServiceInstance<?>>>();
+    /**
+     * Returns the event bus of the framework, which delivers events to the
+     * methods of service providers annotated with
+     * {@link com.inkycode.nexus.annotations.Subscribe}. The event bus can also
+     * be injected into service providers.
+     *
+     * @return the event bus.
+     */
+    public EventBus getEventBus() {
+        return this.eventBus;
     }
 
-    private void registerService(final ServiceDescriptor serviceDescriptor) throws IllegalAccessException, InstantiationException {
-        final Class<?> serviceClass = serviceDescriptor.getServiceClass();
-        final Class<?> serviceProviderClass = serviceDescriptor.getProviderClass();
-        final Class<?> serviceFactoryClass = serviceDescriptor.getFactoryClass();
-        final int priority = serviceDescriptor.getPriority();
+    /**
+     * Registers the metrics of the framework with the platform MBean server,
+     * under the name com.inkycode.nexus:type=Framework,name=<i>name</i>.
+     *
+     * @param name
+     *            the name to register the metrics under.
+     */
+    public void registerMBean(final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this.metrics, new ObjectName("com.inkycode.nexus:type=Framework,name=" + ObjectName.quote(name)));
+        } catch (final JMException e) {
+            LOG.error("Unable to register framework MBean " + name);
+        }
+    }
 
-        if (serviceClass != null && serviceProviderClass != null) {
-            this.registerService(serviceClass, serviceProviderClass, serviceFactoryClass, priority);
+    private void firePhase(final FrameworkListener.Phase phase, final long nanos) {
+        for (final FrameworkListener listener : this.listeners) {
+            listener.onPhase(phase, nanos);
         }
+    }
+
+    /**
+     * Opens a request scope on the calling thread.
+     *
+     * Until the returned scope is closed, request scoped services obtained on
+     * this thread are shared. Request scopes may be nested, and must be closed
+     * on the thread that opened them in the reverse order they were opened.
+     *
+     * @return the request scope.
+     */
+    public RequestScope openRequestScope() {
+        final RequestScope requestScope = new RequestScope(this, this.requestScopes.get());
 
-        // TODO: do something here
+        this.requestScopes.set(requestScope);
+
+        return requestScope;
     }
 
-    private void registerService(final Class<?> service, final Class<?> provider, final Class<?> factory, final int priority) throws IllegalAccessException, InstantiationException {
-        // If we already have a set for this service in the
-        // service map then use that, otherwise create a new
-        // set.
-        final Set<ServiceInstance<?>> serviceInstanceSet = this.serviceMap.containsKey(service) ? this.serviceMap.get(service) : new TreeSet<ServiceInstance<?>>();
+    void closeRequestScope(final RequestScope requestScope) {
+        if (this.requestScopes.get() != requestScope) {
+            throw new IllegalStateException("Request scope is not the innermost open request scope of this thread");
+        }
 
-        final ServiceInstance<?> serviceInstance = ServiceInstance.getInstance(provider, priority);
+        if (requestScope.getParent() != null) {
+            this.requestScopes.set(requestScope.getParent());
+        } else {
+            this.requestScopes.remove();
+        }
+    }
 
-        serviceInstanceSet.add(serviceInstance);
+    /**
+     * Sets whether service providers are constructed lazily.
+     *
+     * When lazy, a service provider is only constructed and injected the first
+     * time it is obtained, so providers which are never used, such as lower
+     * priority providers of a service, cost nothing at startup. Providers which
+     * are bound to a factory are still constructed on start. Must be set before
+     * the framework is started.
+     *
+     * @param lazy
+     *            true to construct service providers lazily, false otherwise.
+     */
+    public void setLazy(final boolean lazy) {
+        this.checkNotChanging();
 
-        this.serviceMap.put(service, serviceInstanceSet);
+        synchronized (this.registryLock) {
+            this.checkNotStarted();
 
-        if (factory != null) {
-            this.serviceFactoryMap.put(factory, serviceInstanceSet);
+            this.lazy = lazy;
         }
     }
 
-    private void injectServices(final Map<Class<?>, Set<ServiceInstance<?>>> serviceMap) {
-        for (final Set<ServiceInstance<?>> serviceInstanceSet : serviceMap.values()) {
-            for (final ServiceInstance<?> serviceInstance : serviceInstanceSet) {
-                this.injectServices(serviceInstance.getInstance().getClass(), serviceInstance.getInstance());
-            }
+    /**
+     * Sets whether injected services are replaced by proxies when lazy.
+     *
+     * When enabled, injecting a service interface whose provider has not been
+     * constructed yet injects a proxy instead, which constructs the provider
+     * on its first method call. Has no effect unless the framework is lazy.
+     *
+     * @param lazyProxies
+     *            true to inject proxies for services which are not constructed
+     *            yet, false otherwise.
+     */
+    public void setLazyProxies(final boolean lazyProxies) {
+        this.checkNotChanging();
+
+        synchronized (this.registryLock) {
+            this.checkNotStarted();
+
+            this.lazyProxies = lazyProxies;
         }
     }
 
-    private <T> void injectServices(final Class<?> serviceInstanceClass, final T serviceInstance) {
-        for (final Field field : serviceInstanceClass.getDeclaredFields()) {
-            if (field.isAnnotationPresent(Inject.class)) {
-                field.setAccessible(true);
+    /**
+     * Sets whether services are read from the service catalog built by
+     * {@link CatalogBuilder}, rather than from every class path root.
+     *
+     * The catalog replaces the services of the whole class path, so it is
+     * only meant for applications launched from the class path it was built
+     * from, such as a fat jar. Off unless the system property
+     * {@value CatalogBuilder#PROPERTY} is true. Has no effect if there is no
+     * catalog on the class path. Must be set before the framework is started.
+     *
+     * @param catalog
+     *            true to read services from the catalog, false otherwise.
+     */
+    public void setCatalog(final boolean catalog) {
+        this.checkNotChanging();
 
-                try {
-                    field.set(serviceInstance, this.getService(field.getType()));
-                } catch (final ReflectiveOperationException e) {
-                    LOG.error("Unable to inject service");
-                }
-            }
+        synchronized (this.registryLock) {
+            this.checkNotStarted();
+
+            this.catalog = catalog;
         }
+    }
 
-        if (serviceInstanceClass.getSuperclass() != null) {
-            this.injectServices(serviceInstanceClass.getSuperclass(), serviceInstance);
+    /**
+     * Sets the executor which asynchronous methods of services are called on,
+     * unless an executor is set for their service.
+     *
+     * By default every call is given its own virtual thread when the runtime
+     * supports them, otherwise calls share a bounded pool of daemon threads
+     * and run on the callers thread while its queue is full. Must be set
+     * before the framework is started.
+     *
+     * @param executor
+     *            the executor, or null for the default executor.
+     * @see com.inkycode.nexus.annotations.Async
+     */
+    public void setAsyncExecutor(final Executor executor) {
+        this.checkNotChanging();
+
+        synchronized (this.registryLock) {
+            this.checkNotStarted();
+
+            this.asyncExecutor = executor;
         }
     }
 
-    private void notifyFactories(final Map<Class<?>, Set<ServiceInstance<?>>> serviceMap, final Map<Class<?>, Set<ServiceInstance<?>>> serviceFactoryMap) {
-        for (final Class<?> service : serviceMap.keySet()) {
-            for (final ServiceInstance<?> serviceInstance : serviceMap.get(service)) {
+    /**
+     * Sets the executor which asynchronous methods of the given service are
+     * called on. Must be set before the framework is started.
+     *
+     * @param service
+     *            the service class, which also sets the executor of its
+     *            generic and named services.
+     * @param executor
+     *            the executor, or null for the shared executor.
+     * @see com.inkycode.nexus.annotations.Async
+     */
+    public void setAsyncExecutor(final Class<?> service, final Executor executor) {
+        this.setAsyncExecutor(ServiceKey.of(service), executor);
+    }
 
-                if (serviceFactoryMap.containsKey(service)) {
-                    for (final ServiceInstance<?> factoryServiceInstance : serviceFactoryMap.get(service)) {
-                        this.notifyFactory(factoryServiceInstance.getInstance(), serviceInstance.getInstance(), service);
-                    }
-                }
+    /**
+     * Sets the executor which asynchronous methods of the given service are
+     * called on. Must be set before the framework is started.
+     *
+     * @param service
+     *            the service key.
+     * @param executor
+     *            the executor, or null for the shared executor.
+     * @see com.inkycode.nexus.annotations.Async
+     */
+    public void setAsyncExecutor(final ServiceKey<?> service, final Executor executor) {
+        this.checkNotChanging();
+
+        synchronized (this.registryLock) {
+            this.checkNotStarted();
+
+            if (executor != null) {
+                this.asyncExecutors.put(service, executor);
+            } else {
+                this.asyncExecutors.remove(service);
             }
         }
     }
 
-    private void notifyFactory(final Object factoryInstance, final Object serviceInstance, final Class<?> service) {
-        final Class<?> factoryClass = factoryInstance.getClass();
+    private Executor getAsyncExecutor(final ServiceKey<?> service) {
+        Executor executor = this.asyncExecutors.get(service);
 
-        for (final Method method : factoryClass.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(Inject.class)) {
-                final Class<?>[] methodParameterTypes = method.getParameterTypes();
+        if (executor == null && (service.isParameterized() || service.getName() != null)) {
+            executor = this.asyncExecutors.get(ServiceKey.of(service.getRawType()));
+        }
 
-                // The method must have one parameter and it must be instance
-                // assignable by the service instance.
-                if (methodParameterTypes.length == 1 && methodParameterTypes[0].isInstance(serviceInstance)) {
-                    try {
-                        method.invoke(factoryInstance, serviceInstance);
-                    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                        LOG.error("Unable to invoke service instance bind method, check the method signature.");
-                    }
-                }
+        if (executor == null) {
+            executor = this.asyncExecutor;
+        }
+
+        return executor != null ? executor : Asynchrony.getDefaultExecutor();
+    }
+
+    private void checkNotStarted() {
+        if (this.started) {
+            throw new IllegalStateException("Framework is already started");
+        }
+    }
+
+    private void checkNotChanging() {
+        // Providers constructed, injected or bound for a change of the
+        // registry can not change it themselves. On the thread which holds the
+        // registry lock they would change the registry while it is iterated,
+        // and on the executor of a starting framework they would wait for the
+        // lock the starting thread holds while it waits for them.
+        if (this.pendingActivations.get() != null) {
+            throw new IllegalStateException("Framework can not be changed while service providers are constructed, injected or bound");
+        }
+    }
+
+    private void runChanging(final List<ServiceInstance<?>> activations, final Runnable task) {
+        final List<ServiceInstance<?>> previousActivations = this.pendingActivations.get();
+
+        this.pendingActivations.set(activations);
+
+        try {
+            task.run();
+        } finally {
+            if (previousActivations != null) {
+                this.pendingActivations.set(previousActivations);
+            } else {
+                this.pendingActivations.remove();
             }
+        }
+    }
 
+    private boolean deferActivation(final ServiceInstance<?> serviceInstance) {
+        final List<ServiceInstance<?>> activations = this.pendingActivations.get();
+
+        if (activations == null) {
+            return false;
         }
-        // try {
-        // final Method bindValueMethod = factoryClass.getMethod("bindValue",
-        // service);
-        //
-        // if (bindValueMethod != null) {
-        // try {
-        // bindValueMethod.invoke(factoryInstance, serviceInstance);
-        // } catch (final ReflectiveOperationException e) {
-        // LOG.error("Unable to invoke bind method");
-        // }
-        // }
-        // } catch (final NoSuchMethodException e) {
-        // LOG.error("Unable to bind value method");
-        // }
+
+        activations.add(serviceInstance);
+
+        return true;
     }
 
     /**
-     * Starts the framework and initializes services from the services metadata
-     * file.
+     * Registers a provider for the given service.
+     *
+     * If the framework is started, the provider is constructed and injected
+     * straight away and bound to the factories of the service. Services which
+     * were already injected with another provider keep it.
+     *
+     * @param service
+     *            the service.
+     * @param provider
+     *            the service provider.
+     * @param priority
+     *            the service providers priority.
+     * @param <T>
+     *            the type of service.
+     * @throws IllegalStateException
+     *             if called by a provider while it is constructed, injected or
+     *             bound for a change of the framework.
+     * @see #registerService(Class, Class, Class, int, Scope)
      */
-    public void start() {
-        try {
-            final Enumeration<URL> servicesUrls = this.getClass().getClassLoader().getResources("META-INF/services.json");
+    public <T> void registerService(final Class<T> service, final Class<? extends T> provider, final int priority) {
+        this.registerService(service, provider, null, priority, Scope.SINGLETON);
+    }
+
+    /**
+     * Registers a provider for the given service, which may also be a factory
+     * of another service.
+     *
+     * If the framework is started, the provider is constructed and injected
+     * straight away, bound to the factories of the service, and has the
+     * existing providers of its factory service bound to it. Services which
+     * were already injected with another provider keep it.
+     *
+     * The provider is activated once the registry lock is released, so its
+     * activation methods may register and unregister providers themselves.
+     * Constructors, injected members and bind methods of providers, which run
+     * while the framework is changed, may not: registering from them throws
+     * an {@link IllegalStateException}, as they would change the registry
+     * while it is iterated, or wait for the lock the changing thread holds
+     * while it waits for them. Register further providers from an activation
+     * method instead.
+     *
+     * @param service
+     *            the service.
+     * @param provider
+     *            the service provider.
+     * @param factory
+     *            the service the provider is a factory of, or null if the
+     *            provider is not a factory.
+     * @param priority
+     *            the service providers priority.
+     * @param scope
+     *            the scope of the service providers instances.
+     * @param <T>
+     *            the type of service.
+     * @throws IllegalStateException
+     *             if called by a provider while it is constructed, injected or
+     *             bound for a change of the framework.
+     */
+    public <T> void registerService(final Class<T> service, final Class<? extends T> provider, final Class<?> factory, final int priority, final Scope scope) {
+        this.registerService(ServiceKey.of(service), provider, factory, priority, scope);
+    }
 
-            while (servicesUrls.hasMoreElements()) {
-                try (InputStream inputStream = servicesUrls.nextElement().openStream()) {
-                    final ServiceDescriptor[] serviceDescriptors = new ObjectMapper().reader().withType(ServiceDescriptor[].class).readValue(inputStream);
+    /**
+     * Registers a provider for the service identified by the given key, which
+     * may also be a factory of another service.
+     *
+     * @param service
+     *            the key of the service.
+     * @param provider
+     *            the service provider.
+     * @param factory
+     *            the service the provider is a factory of, or null if the
+     *            provider is not a factory.
+     * @param priority
+     *            the service providers priority.
+     * @param scope
+     *            the scope of the service providers instances.
+     * @param <T>
+     *            the type of service.
+     * @throws IllegalStateException
+     *             if called by a provider while it is constructed, injected or
+     *             bound for a change of the framework.
+     * @see #registerService(Class, Class, Class, int, Scope)
+     */
+    public <T> void registerService(final ServiceKey<T> service, final Class<? extends T> provider, final Class<?> factory, final int priority, final Scope scope) {
+        this.checkNotChanging();
 
-                    for (final ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+        final ServiceInstance<?> serviceInstance = ServiceInstance.getInstance(this, provider, factory, scope, null);
+        final List<ServiceInstance<?>> activations = new ArrayList<ServiceInstance<?>>();
 
-                        try {
-                            this.registerService(serviceDescriptor);
-                        } catch (final IllegalAccessException | InstantiationException e) {
-                            LOG.error("Unable to register service");
-                        }
+        synchronized (this.registryLock) {
+            this.addService(this.serviceMap, service, serviceInstance, priority);
 
-                    }
-                } catch (final IOException e) {
-                    LOG.error("Invalid service properties");
-                }
+            if (factory != null) {
+                this.addService(this.serviceFactoryMap, ServiceKey.of(factory), serviceInstance, priority);
             }
 
-            this.injectServices(this.serviceMap);
+            if (this.started) {
+                this.runChanging(activations, () -> this.startService(service, serviceInstance));
 
-            this.notifyFactories(this.serviceMap, this.serviceFactoryMap);
+                // Activated after the lazy providers it was injected with,
+                // which were constructed first.
+                if (serviceInstance.isCreated() && !activations.contains(serviceInstance)) {
+                    activations.add(serviceInstance);
+                }
+            }
+        }
 
-        } catch (final IOException e) {
-            LOG.error("Unable to read service properties");
+        // Activated outside the registry lock, so that activation methods may
+        // register and unregister providers themselves.
+        for (final ServiceInstance<?> activatedServiceInstance : activations) {
+            activatedServiceInstance.activate().join();
         }
     }
 
     /**
-     * Attempts to obtain a provider for the given service.
+     * Unregisters the provider of the given service.
+     *
+     * If the framework is started, the provider is unbound from the factories
+     * of the service through their methods annotated with
+     * {@link com.inkycode.nexus.annotations.Unbind}. Services which were
+     * already injected with the provider keep it.
+     *
+     * The provider is deactivated once the registry lock is released, so its
+     * deactivation methods may register and unregister providers themselves.
+     * Constructors, injected members and bind or unbind methods of providers,
+     * which run while the framework is changed, may not, and unregistering
+     * from them throws an {@link IllegalStateException}.
      *
      * @param service
-     *            the service to obtain a provider for.
-     * @param <T>
-     *            the type of service.
-     * @return a provider for the given service, or null if one can not be
-     *         found.
+     *            the service.
+     * @param provider
+     *            the service provider.
+     * @return true if the provider was registered, false otherwise.
+     * @throws IllegalStateException
+     *             if called by a provider while it is constructed, injected,
+     *             bound or unbound for a change of the framework.
      */
-    @SuppressWarnings("unchecked")
-    public <T> T getService(final Class<T> service) {
+    public boolean unregisterService(final Class<?> service, final Class<?> provider) {
+        return this.unregisterService(ServiceKey.of(service), provider);
+    }
+
+    /**
+     * Unregisters the provider of the service identified by the given key.
+     *
+     * A provider which also provides other services is only deactivated and
+     * unbound from the factories it is a provider of once it is unregistered
+     * from all of them.
+     *
+     * @param service
+     *            the key of the service.
+     * @param provider
+     *            the service provider.
+     * @return true if the provider was registered, false otherwise.
+     * @throws IllegalStateException
+     *             if called by a provider while it is constructed, injected,
+     *             bound or unbound for a change of the framework.
+     * @see #unregisterService(Class, Class)
+     */
+    public boolean unregisterService(final ServiceKey<?> service, final Class<?> provider) {
+        this.checkNotChanging();
+
+        final ServiceInstance<?> serviceInstance;
+        final List<ServiceInstance<?>> activations = new ArrayList<ServiceInstance<?>>();
+        final boolean deactivate;
+
+        synchronized (this.registryLock) {
+            serviceInstance = this.findService(service, provider);
+
+            if (serviceInstance == null) {
+                return false;
+            }
+
+            this.removeService(this.serviceMap, service, serviceInstance);
+
+            final boolean registered = this.isRegistered(serviceInstance);
+
+            if (serviceInstance.getFactory() != null && !registered) {
+                this.removeService(this.serviceFactoryMap, ServiceKey.of(serviceInstance.getFactory()), serviceInstance);
+            }
+
+            if (this.started) {
+                this.resolveServices(this.serviceMap);
+
+                // A lazy provider which was never constructed was never bound
+                // either, so it is neither unbound nor deactivated.
+                if (this.serviceFactoryMap.containsKey(service) && serviceInstance.isCreated()) {
+                    this.runChanging(activations, () -> {
+                        for (final ServiceInstance<?> factoryServiceInstance : this.serviceFactoryMap.get(service)) {
+                            this.notifyFactory(factoryServiceInstance, service, Collections.<ServiceInstance<?>> singletonList(serviceInstance), false);
+                        }
+                    });
+                }
+            }
+
+            deactivate = this.started && serviceInstance.isCreated() && !registered;
+        }
+
+        // Providers which unbind methods obtained lazily are activated, and
+        // the provider deactivated, outside the registry lock, so that
+        // activation and deactivation methods may register and unregister
+        // providers themselves.
+        for (final ServiceInstance<?> activatedServiceInstance : activations) {
+            activatedServiceInstance.activate().join();
+        }
+
+        if (deactivate) {
+            serviceInstance.deactivate().join();
+        }
+
+        return true;
+    }
+
+    private void addServices(final ServiceDescriptor[] serviceDescriptors) {
+        // A provider described for several services is constructed once and
+        // shared by all of them.
+        final Map<Class<?>, ServiceInstance<?>> serviceInstanceMap = new HashMap<Class<?>, ServiceInstance<?>>();
+
+        for (final ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            this.addService(serviceDescriptor, serviceInstanceMap);
+        }
+    }
+
+    private void addService(final ServiceDescriptor serviceDescriptor, final Map<Class<?>, ServiceInstance<?>> serviceInstanceMap) {
+        final Class<?> serviceClass = serviceDescriptor.getServiceClass(this.classLoader);
+        final Class<?> serviceProviderClass = serviceDescriptor.getProviderClass(this.classLoader);
+        final Class<?> serviceFactoryClass = serviceDescriptor.getFactoryClass(this.classLoader);
+        final int priority = serviceDescriptor.getPriority();
+        final Scope scope = serviceDescriptor.getScope();
+
+        if (serviceClass == null || serviceProviderClass == null) {
+            return;
+        }
+
+        ServiceInstance<?> serviceInstance = serviceInstanceMap.get(serviceProviderClass);
+
+        if (serviceInstance == null || serviceInstance.getFactory() != serviceFactoryClass || serviceInstance.getScope() != scope) {
+            serviceInstance = ServiceInstance.getInstance(this, serviceProviderClass, serviceFactoryClass, scope, serviceDescriptor.getParameterClasses(this.classLoader));
+
+            serviceInstanceMap.put(serviceProviderClass, serviceInstance);
+
+            if (serviceFactoryClass != null) {
+                this.addService(this.serviceFactoryMap, ServiceKey.of(serviceFactoryClass), serviceInstance, priority);
+            }
+        }
+
+        final ServiceKey<?> service = ServiceKey.of(serviceClass, serviceDescriptor.getType(), serviceDescriptor.getName());
+
+        this.addService(this.serviceMap, service, serviceInstance, priority);
+
+        // Providers of generic services are also provided for their class, as
+        // they were before services were told apart by their type arguments.
+        if (service.isParameterized() && service.getName() == null) {
+            this.addService(this.serviceMap, ServiceKey.of(serviceClass), serviceInstance, priority);
+        }
+    }
+
+    private void addService(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap, final ServiceKey<?> service, final ServiceInstance<?> serviceInstance, final int priority) {
+        // If we already have an index for this service in the
+        // service map then use that, otherwise create a new
+        // index.
+        final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex = serviceMap.containsKey(service) ? serviceMap.get(service) : new PriorityIndex<ServiceInstance<?>>();
+
+        // Providers of equal priority are selected in the order they were
+        // registered.
+        serviceInstanceIndex.add(serviceInstance, priority, this.sequence++);
+
+        serviceMap.put(service, serviceInstanceIndex);
+    }
+
+    private ServiceInstance<?> findService(final ServiceKey<?> service, final Class<?> provider) {
         if (this.serviceMap.containsKey(service)) {
-            return ((ServiceInstance<T>) this.serviceMap.get(service).toArray()[0]).getInstance();
+            for (final ServiceInstance<?> serviceInstance : this.serviceMap.get(service)) {
+                if (serviceInstance.getProvider() == provider) {
+                    return serviceInstance;
+                }
+            }
         }
 
         return null;
     }
 
-    private static class ServiceInstance<T> implements Comparable<ServiceInstance<T>> {
+    private boolean isRegistered(final ServiceInstance<?> serviceInstance) {
+        for (final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex : this.serviceMap.values()) {
+            for (final ServiceInstance<?> registeredServiceInstance : serviceInstanceIndex) {
+                if (registeredServiceInstance == serviceInstance) {
+                    return true;
+                }
+            }
+        }
 
-        private final T instance;
+        return false;
+    }
 
-        private final int priority;
+    private void removeService(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap, final ServiceKey<?> service, final ServiceInstance<?> serviceInstance) {
+        final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex = serviceMap.get(service);
 
-        private ServiceInstance(final Class<T> service, final int priority) throws InstantiationException, IllegalAccessException {
-            this.instance = service.newInstance();
+        serviceInstanceIndex.remove(serviceInstance);
 
-            this.priority = priority;
+        if (serviceInstanceIndex.isEmpty()) {
+            serviceMap.remove(service);
         }
+    }
 
-        private T getInstance() {
-            return this.instance;
-        }
+    private void startService(final ServiceKey<?> service, final ServiceInstance<?> serviceInstance) {
+        if (!this.lazy) {
+            this.createService(serviceInstance);
 
-        private int getPriority() {
-            return this.priority;
+            if (!serviceInstance.isAvailable()) {
+                this.removeService(this.serviceMap, service, serviceInstance);
+
+                if (serviceInstance.getFactory() != null) {
+                    this.removeService(this.serviceFactoryMap, ServiceKey.of(serviceInstance.getFactory()), serviceInstance);
+                }
+
+                return;
+            }
         }
 
-        @Override
-        public int compareTo(final ServiceInstance<T> b) {
-            if (this.getPriority() == b.getPriority())
-                return 1;
+        this.resolveServices(this.serviceMap);
+
+        if (serviceInstance.isCreated()) {
+            this.injectServices(serviceInstance);
+        }
 
-            return this.getPriority() > b.getPriority() ? -1 : 1;
+        if (this.serviceFactoryMap.containsKey(service)) {
+            for (final ServiceInstance<?> factoryServiceInstance : this.serviceFactoryMap.get(service)) {
+                this.createFactoryService(factoryServiceInstance, Collections.<ServiceInstance<?>> singletonList(serviceInstance));
+                this.notifyFactory(factoryServiceInstance, service, Collections.<ServiceInstance<?>> singletonList(serviceInstance), true);
+            }
         }
 
-        private static <K> ServiceInstance<K> getInstance(final Class<K> type, final int priority) throws InstantiationException, IllegalAccessException {
-            return new ServiceInstance<K>(type, priority);
+        final ServiceKey<?> factory = serviceInstance.getFactory() != null ? ServiceKey.of(serviceInstance.getFactory()) : null;
+
+        if (factory != null && this.serviceMap.containsKey(factory)) {
+            this.createFactoryService(serviceInstance, this.serviceMap.get(factory));
+            this.notifyFactory(serviceInstance, factory, this.serviceMap.get(factory), true);
         }
     }
 
+    private void createServices(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap, final Executor executor) {
+        final Set<ServiceInstance<?>> serviceInstances = new LinkedHashSet<ServiceInstance<?>>();
+
+        for (final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex : serviceMap.values()) {
+            for (final ServiceInstance<?> serviceInstance : serviceInstanceIndex) {
+                serviceInstances.add(serviceInstance);
+            }
+        }
+
+        final List<ServiceInstance<?>> activations = this.pendingActivations.get();
+
+        // Providers are only constructed once the singletons their
+        // constructors are injected with have been constructed, providers
+        // without constructor dependencies are all constructed at once.
+        // Providers which are not singletons are only prepared for
+        // construction.
+        schedule(serviceInstances, this::getConstructorDependencies, serviceInstance -> {
+            this.runChanging(activations, () -> this.createService(serviceInstance));
+
+            return COMPLETED;
+        }, executor).join();
+    }
+
+    private List<ServiceInstance<?>> getConstructorDependencies(final ServiceInstance<?> serviceInstance) {
+        final List<ServiceInstance<?>> dependencies = new ArrayList<ServiceInstance<?>>();
+
+        if (!serviceInstance.tryPrepare()) {
+            return dependencies;
+        }
+
+        final Type[] dependencyTypes = serviceInstance.getDependencyTypes();
+        final String[] dependencyNames = serviceInstance.getDependencyNames();
+
+        // Keyed as the constructor arguments are resolved, so that generic,
+        // named and listed dependencies are constructed first too, rather
+        // than on demand by the constructor.
+        for (int i = 0; i < dependencyTypes.length; i++) {
+            this.addDependencies(dependencies, dependencyTypes[i], dependencyNames[i]);
+        }
+
+        dependencies.removeIf(dependency -> dependency.getScope() != Scope.SINGLETON);
+
+        return dependencies;
+    }
+
+    private List<ServiceInstance<?>> getDependencies(final ServiceInstance<?> serviceInstance) {
+        final List<ServiceInstance<?>> dependencies = new ArrayList<ServiceInstance<?>>();
+        final Type[] dependencyTypes = serviceInstance.getDependencyTypes();
+        final String[] dependencyNames = serviceInstance.getDependencyNames();
+
+        for (int i = 0; i < dependencyTypes.length; i++) {
+            this.addDependencies(dependencies, dependencyTypes[i], dependencyNames[i]);
+        }
+
+        for (Class<?> type = serviceInstance.getProvider(); type != null; type = type.getSuperclass()) {
+            for (final Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Inject.class)) {
+                    this.addDependencies(dependencies, field.getGenericType(), getName(field.getAnnotations()));
+                }
+            }
+        }
+
+        return dependencies;
+    }
+
+    private void addDependencies(final List<ServiceInstance<?>> dependencies, final Type type, final String name) {
+        final ServiceKey<?> service = getDependencyKey(type, name);
+
+        if (service == null || !this.serviceMap.containsKey(service)) {
+            return;
+        }
+
+        if (isProviderList(type)) {
+            for (final ServiceInstance<?> dependency : this.serviceMap.get(service)) {
+                dependencies.add(dependency);
+            }
+        } else {
+            dependencies.add(this.serviceMap.get(service).first());
+        }
+    }
+
+    private static CompletableFuture<Void> schedule(final Collection<ServiceInstance<?>> serviceInstances, final Function<ServiceInstance<?>, List<ServiceInstance<?>>> dependencies, final Function<ServiceInstance<?>, CompletableFuture<Void>> task, final Executor executor) {
+        final Map<ServiceInstance<?>, CompletableFuture<Void>> futures = new HashMap<ServiceInstance<?>, CompletableFuture<Void>>();
+        final Set<ServiceInstance<?>> path = new HashSet<ServiceInstance<?>>();
+
+        for (final ServiceInstance<?> serviceInstance : serviceInstances) {
+            schedule(serviceInstance, dependencies, task, executor, futures, path);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    private static CompletableFuture<Void> schedule(final ServiceInstance<?> serviceInstance, final Function<ServiceInstance<?>, List<ServiceInstance<?>>> dependencies, final Function<ServiceInstance<?>, CompletableFuture<Void>> task, final Executor executor, final Map<ServiceInstance<?>, CompletableFuture<Void>> futures, final Set<ServiceInstance<?>> path) {
+        final CompletableFuture<Void> existingFuture = futures.get(serviceInstance);
+
+        if (existingFuture != null) {
+            return existingFuture;
+        }
+
+        // A dependency cycle is broken where it is found, its providers are
+        // then run in no particular order.
+        if (!path.add(serviceInstance)) {
+            return COMPLETED;
+        }
+
+        final List<CompletableFuture<Void>> dependencyFutures = new ArrayList<CompletableFuture<Void>>();
+
+        for (final ServiceInstance<?> dependency : dependencies.apply(serviceInstance)) {
+            dependencyFutures.add(schedule(dependency, dependencies, task, executor, futures, path));
+        }
+
+        path.remove(serviceInstance);
+
+        final CompletableFuture<Void> future = CompletableFuture.allOf(dependencyFutures.toArray(new CompletableFuture<?>[dependencyFutures.size()])).thenComposeAsync(v -> task.apply(serviceInstance), executor);
+
+        futures.put(serviceInstance, future);
+
+        return future;
+    }
+
+    private void pruneServices(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap) {
+        // Drop the providers which could not be constructed so that the next
+        // provider by priority is used in their place.
+        for (final Iterator<PriorityIndex<ServiceInstance<?>>> serviceIterator = serviceMap.values().iterator(); serviceIterator.hasNext();) {
+            final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex = serviceIterator.next();
+
+            serviceInstanceIndex.removeIf(serviceInstance -> !serviceInstance.isAvailable());
+
+            if (serviceInstanceIndex.isEmpty()) {
+                serviceIterator.remove();
+            }
+        }
+    }
+
+    private void createService(final ServiceInstance<?> serviceInstance) {
+        final long allocatedBytes = FrameworkMetrics.getAllocatedBytes();
+        final long startTime = System.nanoTime();
+
+        try {
+            serviceInstance.create();
+        } catch (final ReflectiveOperationException e) {
+            LOG.error("Unable to create service " + serviceInstance.getProvider().getName());
+
+            return;
+        }
+
+        if (serviceInstance.isCreated()) {
+            this.fireServiceCreated(serviceInstance.getProvider(), startTime, allocatedBytes);
+        }
+    }
+
+    private void fireServiceCreated(final Class<?> provider, final long startTime, final long allocatedBytes) {
+        final long nanos = System.nanoTime() - startTime;
+        final long allocated = allocatedBytes >= 0 ? FrameworkMetrics.getAllocatedBytes() - allocatedBytes : -1;
+
+        for (final FrameworkListener listener : this.listeners) {
+            listener.onServiceCreated(provider, nanos, allocated);
+        }
+    }
+
+    private void resolveServices(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap) {
+        int length = 0;
+
+        for (final ServiceKey<?> service : serviceMap.keySet()) {
+            length = Math.max(length, this.serviceIds.register(service) + 1);
+        }
+
+        final ServiceReference<?>[] providers = new ServiceReference<?>[length];
+        final List<?>[] providerLists = new List<?>[length];
+
+        // Each index is in order of selection, so the first instance is the
+        // provider that will be returned for the service. Providers are found
+        // by the id of the service key, without hashing it.
+        for (final Map.Entry<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> entry : serviceMap.entrySet()) {
+            final ServiceInstance<?>[] serviceInstances = entry.getValue().toArray(new ServiceInstance<?>[entry.getValue().size()]);
+            final ServiceReference<?>[] serviceReferences = new ServiceReference<?>[serviceInstances.length];
+
+            for (int i = 0; i < serviceInstances.length; i++) {
+                serviceReferences[i] = serviceInstances[i].getReference(entry.getKey());
+            }
+
+            final int id = this.serviceIds.get(entry.getKey());
+
+            providers[id] = serviceReferences[0];
+            providerLists[id] = new ProviderList<Object>(serviceReferences);
+        }
+
+        // The arrays are never modified once published, so lookups need
+        // neither locking nor copying. The providers are published last, as
+        // reading them publishes the rest of the framework state.
+        this.providerLists = providerLists;
+        this.providers = providers;
+    }
+
+    private void injectServices(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap, final Executor executor) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        final Set<ServiceInstance<?>> serviceInstances = new HashSet<ServiceInstance<?>>();
+        final List<ServiceInstance<?>> activations = this.pendingActivations.get();
+
+        // Every provider is constructed at this point, so each one can be
+        // injected independently of the others.
+        for (final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex : serviceMap.values()) {
+            for (final ServiceInstance<?> serviceInstance : serviceInstanceIndex) {
+                // A provider of several services is only injected once.
+                if (!serviceInstance.isCreated() || !serviceInstances.add(serviceInstance)) {
+                    continue;
+                }
+
+                futures.add(CompletableFuture.runAsync(() -> this.runChanging(activations, () -> this.injectServices(serviceInstance)), executor));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+    }
+
+    private <T> void injectServices(final ServiceInstance<T> serviceInstance) {
+        final long startTime = System.nanoTime();
+
+        this.injectServices(serviceInstance, serviceInstance.getInstance());
+
+        this.fireServiceInjected(serviceInstance.getProvider(), startTime);
+    }
+
+    private void fireServiceInjected(final Class<?> provider, final long startTime) {
+        final long nanos = System.nanoTime() - startTime;
+
+        for (final FrameworkListener listener : this.listeners) {
+            listener.onServiceInjected(provider, nanos);
+        }
+    }
+
+    private <T> void injectServices(final ServiceInstance<T> serviceInstance, final T instance) {
+        final Injector<T> injector = serviceInstance.getInjector();
+
+        // Prefer the injector generated at compile time, only fall back to
+        // reflection if the provider has none.
+        if (injector != null) {
+            injector.inject(this, instance);
+        } else {
+            this.injectServices(instance.getClass(), instance);
+        }
+    }
+
+    private <T> void injectServices(final Class<?> serviceInstanceClass, final T serviceInstance) {
+        for (final Field field : serviceInstanceClass.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Inject.class)) {
+                field.setAccessible(true);
+
+                try {
+                    field.set(serviceInstance, this.resolveDependency(field.getGenericType(), getName(field.getAnnotations())));
+                } catch (final ReflectiveOperationException e) {
+                    LOG.error("Unable to inject service");
+                }
+            }
+        }
+
+        if (serviceInstanceClass.getSuperclass() != null) {
+            this.injectServices(serviceInstanceClass.getSuperclass(), serviceInstance);
+        }
+    }
+
+    private void notifyFactories(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap, final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceFactoryMap) {
+        for (final ServiceKey<?> service : serviceFactoryMap.keySet()) {
+            if (!serviceMap.containsKey(service)) {
+                continue;
+            }
+
+            // Each factory is bound to every provider of its service at once,
+            // in order of selection.
+            for (final ServiceInstance<?> factoryServiceInstance : serviceFactoryMap.get(service)) {
+                this.notifyFactory(factoryServiceInstance, service, serviceMap.get(service), true);
+            }
+        }
+    }
+
+    private void createFactoryServices(final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceMap, final Map<ServiceKey<?>, PriorityIndex<ServiceInstance<?>>> serviceFactoryMap) {
+        for (final ServiceKey<?> service : serviceFactoryMap.keySet()) {
+            if (!serviceMap.containsKey(service)) {
+                continue;
+            }
+
+            for (final ServiceInstance<?> factoryServiceInstance : serviceFactoryMap.get(service)) {
+                this.createFactoryService(factoryServiceInstance, serviceMap.get(service));
+            }
+        }
+    }
+
+    private void createFactoryService(final ServiceInstance<?> factoryServiceInstance, final Iterable<ServiceInstance<?>> serviceInstances) {
+        // Lazy providers which are bound to a factory, and the factory itself,
+        // are constructed before they are bound, as binding only passes
+        // constructed providers. Their activation is deferred until the
+        // registry lock is released.
+        if (factoryServiceInstance.getScope() != Scope.SINGLETON) {
+            return;
+        }
+
+        boolean created = false;
+
+        for (final ServiceInstance<?> serviceInstance : serviceInstances) {
+            if (serviceInstance.getScope() == Scope.SINGLETON) {
+                serviceInstance.getInstance();
+
+                created |= serviceInstance.isCreated();
+            }
+        }
+
+        if (created) {
+            factoryServiceInstance.getInstance();
+        }
+    }
+
+    private void notifyFactory(final ServiceInstance<?> factoryServiceInstance, final ServiceKey<?> service, final Iterable<ServiceInstance<?>> serviceInstances, final boolean bind) {
+        // Only singletons are bound, a scoped instance would outlive its scope
+        // once held by a factory. Binding never constructs a provider, those
+        // which were never constructed were never bound either.
+        if (factoryServiceInstance.getScope() != Scope.SINGLETON || !factoryServiceInstance.isCreated()) {
+            return;
+        }
+
+        final List<Object> instances = new ArrayList<Object>();
+
+        for (final ServiceInstance<?> serviceInstance : serviceInstances) {
+            final Object instance = serviceInstance.getScope() == Scope.SINGLETON && serviceInstance.isCreated() ? serviceInstance.getReference(service).getInstance() : null;
+
+            if (instance != null) {
+                instances.add(instance);
+            }
+        }
+
+        final Object factoryInstance = !instances.isEmpty() ? factoryServiceInstance.getInstance() : null;
+
+        if (factoryInstance == null) {
+            return;
+        }
+
+        if (bind) {
+            FactoryBinder.forClass(factoryInstance.getClass()).bind(factoryInstance, instances);
+        } else {
+            FactoryBinder.forClass(factoryInstance.getClass()).unbind(factoryInstance, instances);
+        }
+    }
+
+    /**
+     * Starts the framework and initializes services from the services metadata
+     * file.
+     *
+     * The binary service index is preferred, the services metadata file is
+     * only parsed for class path roots which do not contain an index. If
+     * catalogs are enabled with {@link #setCatalog(boolean)} and the class path
+     * contains a service catalog built by {@link CatalogBuilder}, only the
+     * catalog is read.
+     *
+     * Starting is safe from any thread, and only the first call starts the
+     * framework.
+     */
+    public void start() {
+        this.start(CALLER_EXECUTOR);
+    }
+
+    /**
+     * Starts the framework and initializes services from the services metadata
+     * file, constructing and injecting service providers in parallel on the
+     * given executor.
+     *
+     * Startup then takes as long as the slowest provider rather than all
+     * providers together, which pays off when providers do expensive work in
+     * their constructors. The services metadata of each class path root is
+     * read and parsed on the executor as well, which pays off on class paths
+     * of many jars. Factories are still notified on the calling thread.
+     *
+     * Providers are activated once the framework is started, outside the
+     * registry lock, so that their activation methods may register and
+     * unregister providers. Constructors, injection and bind methods may not
+     * change the framework, as the calling thread holds the lock until they
+     * complete, and doing so throws an {@link IllegalStateException}.
+     *
+     * @param executor
+     *            the executor to construct and inject service providers on, for
+     *            example {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     */
+    public void start(final Executor executor) {
+        this.checkNotChanging();
+
+        final long startTime = System.nanoTime();
+        final List<ServiceInstance<?>> activations = Collections.synchronizedList(new ArrayList<ServiceInstance<?>>());
+        final List<ServiceInstance<?>> serviceInstances;
+        final Map<ServiceInstance<?>, List<ServiceInstance<?>>> dependencyMap;
+        final CompletableFuture<Void> activation;
+
+        synchronized (this.registryLock) {
+            if (this.started) {
+                return;
+            }
+
+            // Listeners are only loaded the first time the framework is
+            // started, and are kept when it is stopped and started again.
+            if (!this.listenersLoaded) {
+                for (final FrameworkListener listener : ServiceLoader.load(FrameworkListener.class, this.classLoader)) {
+                    this.addListener(listener);
+                }
+
+                this.listenersLoaded = true;
+            }
+
+            final List<ServiceDescriptor[]> serviceDescriptorsList;
+
+            // Every descriptor is read before any is added, so the registry
+            // is left as it was when one can not be read.
+            try {
+                // Classes are only prefetched when there are other threads to
+                // load them on.
+                serviceDescriptorsList = this.scanServices(executor, this.catalog, executor != CALLER_EXECUTOR);
+            } catch (final IOException e) {
+                LOG.error("Unable to read service properties", e);
+
+                return;
+            }
+
+            // Providers constructed on the way are activated with the rest
+            // once the framework is started, so none is activated under the
+            // registry lock.
+            this.pendingActivations.set(activations);
+
+            try {
+                final long loadStartTime = System.nanoTime();
+
+                for (final ServiceDescriptor[] serviceDescriptors : serviceDescriptorsList) {
+                    this.addServices(serviceDescriptors);
+                }
+
+                this.firePhase(FrameworkListener.Phase.CLASS_LOADING, System.nanoTime() - loadStartTime);
+
+                // Resolved before construction so that injected constructors
+                // can obtain their dependencies, and again once providers which
+                // could not be constructed are pruned.
+                this.resolveServices(this.serviceMap);
+
+                if (!this.lazy) {
+                    final long instantiationStartTime = System.nanoTime();
+
+                    this.createServices(this.serviceMap, executor);
+
+                    this.pruneServices(this.serviceMap);
+                    this.pruneServices(this.serviceFactoryMap);
+
+                    this.firePhase(FrameworkListener.Phase.INSTANTIATION, System.nanoTime() - instantiationStartTime);
+
+                    this.resolveServices(this.serviceMap);
+
+                    final long injectionStartTime = System.nanoTime();
+
+                    this.injectServices(this.serviceMap, executor);
+
+                    this.firePhase(FrameworkListener.Phase.INJECTION, System.nanoTime() - injectionStartTime);
+                } else {
+                    this.createFactoryServices(this.serviceMap, this.serviceFactoryMap);
+                }
+
+                final long phaseStartTime = System.nanoTime();
+
+                this.notifyFactories(this.serviceMap, this.serviceFactoryMap);
+
+                this.firePhase(FrameworkListener.Phase.FACTORY_NOTIFICATION, System.nanoTime() - phaseStartTime);
+            } finally {
+                this.pendingActivations.remove();
+            }
+
+            // Providers are activated once the framework is started, from a
+            // snapshot of the registry. Lazy providers are only activated
+            // here if they were constructed to be bound to a factory, and
+            // interceptors if they were constructed on the way.
+            final Set<ServiceInstance<?>> createdServices = new LinkedHashSet<ServiceInstance<?>>(this.getCreatedServices());
+
+            createdServices.addAll(activations);
+
+            serviceInstances = new ArrayList<ServiceInstance<?>>(createdServices);
+            dependencyMap = new HashMap<ServiceInstance<?>, List<ServiceInstance<?>>>();
+
+            for (final ServiceInstance<?> serviceInstance : serviceInstances) {
+                dependencyMap.put(serviceInstance, this.getDependencies(serviceInstance));
+            }
+
+            activation = new CompletableFuture<Void>();
+
+            this.activation = activation;
+            this.started = true;
+        }
+
+        // Activated outside the registry lock, so that activation methods may
+        // register and unregister providers themselves. Providers are
+        // activated once the providers they depend on are, so independent
+        // warm-ups overlap.
+        final long activationStartTime = System.nanoTime();
+
+        try {
+            schedule(serviceInstances, serviceInstance -> dependencyMap.getOrDefault(serviceInstance, Collections.<ServiceInstance<?>> emptyList()), ServiceInstance::activate, executor).join();
+        } finally {
+            activation.complete(null);
+        }
+
+        this.firePhase(FrameworkListener.Phase.ACTIVATION, System.nanoTime() - activationStartTime);
+
+        for (final FrameworkListener listener : this.listeners) {
+            listener.onStarted(System.nanoTime() - startTime);
+        }
+    }
+
+    private List<ServiceInstance<?>> getCreatedServices() {
+        final Set<ServiceInstance<?>> serviceInstances = new HashSet<ServiceInstance<?>>();
+
+        for (final PriorityIndex<ServiceInstance<?>> serviceInstanceIndex : this.serviceMap.values()) {
+            for (final ServiceInstance<?> serviceInstance : serviceInstanceIndex) {
+                if (serviceInstance.isCreated()) {
+                    serviceInstances.add(serviceInstance);
+                }
+            }
+        }
+
+        return new ArrayList<ServiceInstance<?>>(serviceInstances);
+    }
+
+    /**
+     * Stops the framework, deactivating service providers on the calling
+     * thread and waiting for their deactivation to complete.
+     *
+     * @see #stop(Executor, long, TimeUnit)
+     */
+    public void stop() {
+        this.stop(CALLER_EXECUTOR, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the framework, deactivating service providers in parallel on the
+     * given executor.
+     *
+     * A provider is deactivated once the providers which depend on it are
+     * deactivated, through its methods annotated with
+     * {@link com.inkycode.nexus.annotations.Deactivate}. Once stopped, every
+     * service provider is unregistered and the framework can be started again.
+     *
+     * Providers are unregistered before they are deactivated, and deactivated
+     * outside the registry lock once their activation has completed, so that
+     * deactivation methods may register and unregister providers themselves.
+     *
+     * @param executor
+     *            the executor to deactivate service providers on.
+     * @param timeout
+     *            the longest time to wait for service providers to deactivate.
+     * @param unit
+     *            the unit of the timeout.
+     * @return true if every service provider was deactivated in time, false
+     *         otherwise. Deactivations which are still running are not
+     *         interrupted.
+     */
+    public boolean stop(final Executor executor, final long timeout, final TimeUnit unit) {
+        this.checkNotChanging();
+
+        final long startTime = System.nanoTime();
+        final List<ServiceInstance<?>> serviceInstances;
+        final Map<ServiceInstance<?>, List<ServiceInstance<?>>> dependentMap;
+        final List<ServiceInstance<?>> interceptorInstances;
+        final CompletableFuture<Void> activation;
+
+        synchronized (this.registryLock) {
+            if (!this.started) {
+                return true;
+            }
+
+            serviceInstances = this.getCreatedServices();
+            dependentMap = new HashMap<ServiceInstance<?>, List<ServiceInstance<?>>>();
+
+            for (final ServiceInstance<?> serviceInstance : serviceInstances) {
+                dependentMap.put(serviceInstance, new ArrayList<ServiceInstance<?>>());
+            }
+
+            for (final ServiceInstance<?> serviceInstance : serviceInstances) {
+                for (final ServiceInstance<?> dependency : this.getDependencies(serviceInstance)) {
+                    if (dependentMap.containsKey(dependency)) {
+                        dependentMap.get(dependency).add(serviceInstance);
+                    }
+                }
+            }
+
+            activation = this.activation;
+            interceptorInstances = new ArrayList<ServiceInstance<?>>(this.interceptorInstances.values());
+
+            this.serviceMap.clear();
+            this.serviceFactoryMap.clear();
+            this.interceptorInstances.clear();
+            this.resolveServices(this.serviceMap);
+            this.activation = COMPLETED;
+            this.started = false;
+        }
+
+        boolean stopped = true;
+
+        try {
+            // Interceptors are deactivated once the providers they intercept
+            // are.
+            activation.thenCompose(v -> schedule(serviceInstances, dependentMap::get, ServiceInstance::deactivate, executor)).thenCompose(v -> schedule(interceptorInstances, serviceInstance -> Collections.<ServiceInstance<?>> emptyList(), ServiceInstance::deactivate, executor)).get(timeout, unit);
+        } catch (final TimeoutException e) {
+            LOG.warn("Service providers did not deactivate within " + timeout + " " + unit);
+
+            stopped = false;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            stopped = false;
+        } catch (final ExecutionException e) {
+            LOG.error("Unable to deactivate service providers", e);
+
+            stopped = false;
+        }
+
+        // Stops the thread of the event bus, which would otherwise keep the
+        // providers it delivers to.
+        this.eventBus.close();
+
+        for (final FrameworkListener listener : this.listeners) {
+            listener.onStopped(System.nanoTime() - startTime);
+        }
+
+        return stopped;
+    }
+
+    /**
+     * Reads the service descriptors of the class path, from the service
+     * catalog if there is one and catalogs are used, and from the service
+     * indexes and services metadata files of each class path root otherwise.
+     *
+     * When prefetching, the classes described by the descriptors of each root
+     * start loading on the executor as soon as the root is read, while the
+     * framework goes on to register them.
+     */
+    List<ServiceDescriptor[]> scanServices(final Executor executor, final boolean catalog, final boolean prefetch) throws IOException {
+        final long scanStartTime = System.nanoTime();
+
+        final URL catalogUrl = catalog ? this.classLoader.getResource(CatalogBuilder.RESOURCE) : null;
+
+        if (catalogUrl != null) {
+            this.firePhase(FrameworkListener.Phase.RESOURCE_SCAN, System.nanoTime() - scanStartTime);
+
+            final long parseStartTime = System.nanoTime();
+
+            // The catalog holds the services of the whole class path in the
+            // order they would be registered, so nothing else is read.
+            final List<ServiceDescriptor[]> serviceDescriptorsList = Collections.singletonList(readDescriptors(catalogUrl, null));
+
+            if (prefetch) {
+                this.prefetchClasses(serviceDescriptorsList.get(0), executor);
+            }
+
+            this.firePhase(FrameworkListener.Phase.DESCRIPTOR_PARSE, System.nanoTime() - parseStartTime);
+
+            return serviceDescriptorsList;
+        }
+
+        final List<URL> indexUrls = Collections.list(this.classLoader.getResources(ServiceIndex.RESOURCE));
+        final List<URL> servicesUrls = Collections.list(this.classLoader.getResources(SERVICES_RESOURCE));
+
+        this.firePhase(FrameworkListener.Phase.RESOURCE_SCAN, System.nanoTime() - scanStartTime);
+
+        final long parseStartTime = System.nanoTime();
+
+        final Map<String, URL> servicesUrlMap = new HashMap<String, URL>();
+
+        for (final URL servicesUrl : servicesUrls) {
+            servicesUrlMap.putIfAbsent(getResourceRoot(servicesUrl, SERVICES_RESOURCE), servicesUrl);
+        }
+
+        // Descriptors are read and parsed in parallel, one task per class path
+        // root, but are returned in class path order so that the registry does
+        // not depend on which task finishes first. The services file of a root
+        // is only parsed if it has no index, or if its index can not be read.
+        final List<CompletableFuture<ServiceDescriptor[]>> futures = new ArrayList<CompletableFuture<ServiceDescriptor[]>>();
+        final Function<ServiceDescriptor[], ServiceDescriptor[]> prefetchClasses = prefetch ? serviceDescriptors -> this.prefetchClasses(serviceDescriptors, executor) : Function.identity();
+
+        for (final URL indexUrl : indexUrls) {
+            final URL servicesUrl = servicesUrlMap.remove(getResourceRoot(indexUrl, ServiceIndex.RESOURCE));
+
+            futures.add(CompletableFuture.supplyAsync(() -> readDescriptors(indexUrl, servicesUrl), executor).thenApply(prefetchClasses));
+        }
+
+        for (final URL servicesUrl : servicesUrls) {
+            if (servicesUrlMap.remove(getResourceRoot(servicesUrl, SERVICES_RESOURCE)) == servicesUrl) {
+                futures.add(CompletableFuture.supplyAsync(() -> readDescriptors(null, servicesUrl), executor).thenApply(prefetchClasses));
+            }
+        }
+
+        final List<ServiceDescriptor[]> serviceDescriptorsList = new ArrayList<ServiceDescriptor[]>(futures.size());
+
+        for (final CompletableFuture<ServiceDescriptor[]> future : futures) {
+            serviceDescriptorsList.add(future.join());
+        }
+
+        this.firePhase(FrameworkListener.Phase.DESCRIPTOR_PARSE, System.nanoTime() - parseStartTime);
+
+        return serviceDescriptorsList;
+    }
+
+    private ServiceDescriptor[] prefetchClasses(final ServiceDescriptor[] serviceDescriptors, final Executor executor) {
+        // One task per provider, which the registry does not wait for, as it
+        // loads whichever classes are not prefetched yet itself. Classes are
+        // loaded but not initialized, so that static initializers still run
+        // one at a time in registration order and can not deadlock on one
+        // another.
+        for (final ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            executor.execute(() -> {
+                prefetchClass(serviceDescriptor.getService() != null ? serviceDescriptor.getService().getName() : null, this.classLoader);
+                prefetchClass(serviceDescriptor.getProvider() != null ? serviceDescriptor.getProvider().getName() : null, this.classLoader);
+                prefetchClass(serviceDescriptor.getProvider() != null ? serviceDescriptor.getProvider().getName() + Injector.SUFFIX : null, this.classLoader);
+                prefetchClass(serviceDescriptor.getFactory() != null ? serviceDescriptor.getFactory().getName() : null, this.classLoader);
+            });
+        }
+
+        return serviceDescriptors;
+    }
+
+    private static void prefetchClass(final String className, final ClassLoader classLoader) {
+        if (className == null) {
+            return;
+        }
+
+        try {
+            Class.forName(className, false, classLoader);
+        } catch (final ClassNotFoundException | LinkageError e) {
+            // Reported when the class is loaded for registration, if it is
+            // needed at all.
+        }
+    }
+
+    private static ServiceDescriptor[] readDescriptors(final URL indexUrl, final URL servicesUrl) {
+        if (indexUrl != null) {
+            try {
+                return ServiceIndex.read(new ByteArrayInputStream(readResource(indexUrl)));
+            } catch (final IOException | RuntimeException e) {
+                // A corrupt index falls back to the services file of its
+                // root, rather than failing the start.
+                LOG.error("Invalid service index " + indexUrl + ": " + e.getMessage());
+            }
+        }
+
+        if (servicesUrl != null) {
+            try {
+                return SERVICES_READER.<ServiceDescriptor[]> readValue(readResource(servicesUrl));
+            } catch (final IOException e) {
+                LOG.error("Invalid service properties");
+            }
+        }
+
+        return new ServiceDescriptor[0];
+    }
+
+    private static byte[] readResource(final URL url) throws IOException {
+        // Descriptors are read in a single bulk read, straight from the file
+        // system when their class path root is a directory, and through the
+        // class path otherwise, which covers jars and nested jars.
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Files.readAllBytes(Paths.get(url.toURI()));
+            } catch (final URISyntaxException | IllegalArgumentException e) {
+                // Not a plain file path, read it as any other URL.
+            }
+        }
+
+        try (InputStream inputStream = url.openStream()) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    private static String getResourceRoot(final URL url, final String resource) {
+        final String location = url.toString();
+
+        return location.endsWith(resource) ? location.substring(0, location.length() - resource.length()) : location;
+    }
+
+    /**
+     * Attempts to obtain a provider for the given service.
+     *
+     * The provider with the highest priority is selected, and among providers
+     * of equal priority the one registered first. Providers are registered in
+     * the order they appear in the services metadata, and then in the order
+     * they are registered at runtime.
+     *
+     * @param service
+     *            the service to obtain a provider for.
+     * @param <T>
+     *            the type of service.
+     * @return a provider for the given service, or null if one can not be
+     *         found.
+     */
+    public <T> T getService(final Class<T> service) {
+        return this.getService(ServiceKey.of(service));
+    }
+
+    /**
+     * Attempts to obtain a provider for the service identified by the given
+     * key, such as a generic or named service.
+     *
+     * @param service
+     *            the key of the service to obtain a provider for.
+     * @param <T>
+     *            the type of service.
+     * @return a provider for the given service, or null if one can not be
+     *         found.
+     * @see #getService(Class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getService(final ServiceKey<T> service) {
+        final ServiceReference<?> serviceReference = this.getReference(service);
+
+        if (serviceReference == null) {
+            this.metrics.recordMiss();
+
+            return null;
+        }
+
+        this.metrics.recordHit();
+
+        return (T) serviceReference.getInstance();
+    }
+
+    /**
+     * Obtains the providers of the given service, ordered by priority with the
+     * provider returned by {@link #getService(Class)} first.
+     *
+     * The list is immutable and created when providers are registered, so
+     * obtaining it costs no more than obtaining a single provider. Iterating it
+     * by index allocates nothing for singletons. It is a snapshot, and does
+     * not reflect providers registered or unregistered afterwards.
+     *
+     * @param service
+     *            the service to obtain the providers for.
+     * @param <T>
+     *            the type of service.
+     * @return the providers for the given service, or an empty list if none
+     *         can be found.
+     */
+    public <T> List<T> getServices(final Class<T> service) {
+        return this.getServices(ServiceKey.of(service));
+    }
+
+    /**
+     * Obtains the providers of the service identified by the given key,
+     * ordered by priority.
+     *
+     * @param service
+     *            the key of the service to obtain the providers for.
+     * @param <T>
+     *            the type of service.
+     * @return the providers for the given service, or an empty list if none
+     *         can be found.
+     * @see #getServices(Class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getServices(final ServiceKey<T> service) {
+        final List<?>[] providerLists = this.providerLists;
+        final int id = this.serviceIds.get(service);
+        final List<?> providerList = id >= 0 && id < providerLists.length ? providerLists[id] : null;
+
+        if (providerList == null) {
+            this.metrics.recordMiss();
+
+            return Collections.emptyList();
+        }
+
+        this.metrics.recordHit();
+
+        return (List<T>) providerList;
+    }
+
+    /**
+     * Attempts to obtain a provider for the given service in order to inject
+     * it into another service provider.
+     *
+     * Unlike {@link #getService(Class)} this may return a proxy if the
+     * framework is lazy and the provider has not been constructed yet, or if
+     * the provider is thread or request scoped. The proxy of a scoped service
+     * obtains the provider for the current scope on every method call.
+     *
+     * @param service
+     *            the service to obtain a provider for.
+     * @param <T>
+     *            the type of service.
+     * @return a provider for the given service, or null if one can not be
+     *         found.
+     */
+    public <T> T getDependency(final Class<T> service) {
+        return this.getDependency(ServiceKey.of(service));
+    }
+
+    /**
+     * Attempts to obtain a provider for the service identified by the given
+     * key in order to inject it into another service provider.
+     *
+     * @param service
+     *            the key of the service to obtain a provider for.
+     * @param <T>
+     *            the type of service.
+     * @return a provider for the given service, or null if one can not be
+     *         found.
+     * @see #getDependency(Class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getDependency(final ServiceKey<T> service) {
+        if (service.getRawType() == EventBus.class && service.getName() == null) {
+            return (T) this.eventBus;
+        }
+
+        if (service.getRawType().isInterface()) {
+            final ServiceReference<?> serviceReference = this.getReference(service);
+
+            if (serviceReference != null) {
+                final ServiceInstance<?> serviceInstance = serviceReference.getServiceInstance();
+                final Scope scope = serviceInstance.getScope();
+
+                if (scope == Scope.THREAD || scope == Scope.REQUEST) {
+                    return ServiceProxy.newInstance(this, service, false);
+                }
+
+                if (this.lazyProxies && scope == Scope.SINGLETON && !serviceInstance.isCreated()) {
+                    return ServiceProxy.newInstance(this, service, true);
+                }
+            }
+        }
+
+        return this.getService(service);
+    }
+
+    private ServiceReference<?> getReference(final ServiceKey<?> service) {
+        final ServiceReference<?>[] providers = this.providers;
+        final int id = this.serviceIds.get(service);
+
+        return id >= 0 && id < providers.length ? providers[id] : null;
+    }
+
+    private Interceptor[] getInterceptors(final Class<? extends Interceptor>[] interceptorTypes) {
+        final List<Interceptor> interceptors = new ArrayList<Interceptor>(interceptorTypes.length);
+
+        for (final Class<? extends Interceptor> interceptorType : interceptorTypes) {
+            final ServiceReference<?> serviceReference = this.getReference(ServiceKey.of(interceptorType));
+            final Object interceptor = serviceReference != null ? serviceReference.getInstance() : this.getInterceptorInstance(interceptorType).getInstance();
+
+            // An interceptor which could not be constructed is reported then.
+            if (interceptor != null) {
+                interceptors.add(interceptorType.cast(interceptor));
+            }
+        }
+
+        return interceptors.toArray(new Interceptor[interceptors.size()]);
+    }
+
+    private ServiceInstance<?> getInterceptorInstance(final Class<? extends Interceptor> interceptorType) {
+        ServiceInstance<?> serviceInstance = this.interceptorInstances.get(interceptorType);
+
+        if (serviceInstance == null) {
+            serviceInstance = this.interceptorInstances.computeIfAbsent(interceptorType, type -> ServiceInstance.getInstance(this, type, null, Scope.SINGLETON, null));
+        }
+
+        return serviceInstance;
+    }
+
+    private Object resolveDependency(final Type type, final String name) {
+        final ServiceKey<?> service = getDependencyKey(type, name);
+
+        if (service == null) {
+            return null;
+        }
+
+        // Lists and iterables of a service are injected with all of its
+        // providers, anything else with a provider of its type.
+        return isProviderList(type) ? this.getServices(service) : this.getDependency(service);
+    }
+
+    private static boolean isProviderList(final Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+
+        final Type rawType = ((ParameterizedType) type).getRawType();
+
+        return rawType == List.class || rawType == Iterable.class;
+    }
+
+    private static ServiceKey<?> getDependencyKey(final Type type, final String name) {
+        if (!isProviderList(type)) {
+            return ServiceKey.forDependency(type, name);
+        }
+
+        Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+
+        if (elementType instanceof WildcardType) {
+            elementType = ((WildcardType) elementType).getUpperBounds()[0];
+        }
+
+        return ServiceKey.forDependency(elementType, name);
+    }
+
+    private static String getName(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            if (annotation instanceof Named) {
+                return ((Named) annotation).value();
+            }
+        }
+
+        return null;
+    }
+
+    private static final class Holder {
+
+        private static final Framework FRAMEWORK = new Framework(Framework.class.getClassLoader());
+    }
+
+    private static class ServiceInstance<T> {
+
+        private final Framework framework;
+
+        private final Class<T> provider;
+
+        private final Class<?> factory;
+
+        private final Scope scope;
+
+        private final ThreadLocal<T> threadInstance;
+
+        private final ThreadLocal<Boolean> constructing;
+
+        private final List<ServiceReference<T>> references;
+
+        private final AtomicReference<CompletableFuture<Void>> activation;
+
+        private final Class<?>[] parameterTypes;
+
+        private volatile Construction<T> construction;
+
+        private volatile T instance;
+
+        private T pendingInstance;
+
+        private ServiceInstance(final Framework framework, final Class<T> provider, final Class<?> factory, final Scope scope, final Class<?>[] parameterTypes) {
+            this.framework = framework;
+            this.provider = provider;
+            this.factory = factory;
+            this.scope = scope;
+            this.parameterTypes = parameterTypes;
+            this.threadInstance = scope == Scope.THREAD ? ThreadLocal.withInitial(this::createScopedInstance) : null;
+            this.constructing = new ThreadLocal<Boolean>();
+            this.references = new ArrayList<ServiceReference<T>>(1);
+            this.activation = new AtomicReference<CompletableFuture<Void>>();
+        }
+
+        private Construction<T> prepare() throws ReflectiveOperationException {
+            Construction<T> construction = this.construction;
+
+            if (construction == null) {
+                final Constructor<?> constructor = this.findConstructor();
+
+                constructor.setAccessible(true);
+
+                final Class<?>[] parameterTypes = constructor.getParameterTypes();
+                final Type[] dependencyTypes = constructor.getGenericParameterTypes();
+                final String[] dependencyNames = new String[dependencyTypes.length];
+
+                // Parameters of inner class constructors may carry fewer
+                // annotations than they have types.
+                final Annotation[][] parameterAnnotations = constructor.getParameterAnnotations();
+
+                for (int i = 0; i < parameterAnnotations.length && i < dependencyNames.length; i++) {
+                    dependencyNames[i] = getName(parameterAnnotations[i]);
+                }
+
+                // The constructor is looked up once and kept as a method handle
+                // taking its arguments as an array, which keeps repeated
+                // construction of scoped providers cheap.
+                final MethodHandle constructorHandle = MethodHandles.lookup().unreflectConstructor(constructor).asSpreader(Object[].class, parameterTypes.length).asType(MethodType.methodType(Object.class, Object[].class));
+
+                // Published once complete, through the volatile field, so
+                // threads preparing the provider at once each publish a
+                // construction which is fully filled in.
+                construction = new Construction<T>(constructorHandle, findInjector(this.provider), parameterTypes, dependencyTypes, dependencyNames);
+
+                this.construction = construction;
+            }
+
+            return construction;
+        }
+
+        private Constructor<?> findConstructor() throws NoSuchMethodException {
+            // The parameter types recorded at compile time spare searching the
+            // constructors of the provider.
+            if (this.parameterTypes != null) {
+                return this.provider.getDeclaredConstructor(this.parameterTypes);
+            }
+
+            for (final Constructor<?> constructor : this.provider.getDeclaredConstructors()) {
+                if (constructor.isAnnotationPresent(Inject.class)) {
+                    return constructor;
+                }
+            }
+
+            return this.provider.getDeclaredConstructor();
+        }
+
+        private T newInstance() throws ReflectiveOperationException {
+            final Construction<T> construction = this.prepare();
+            final Object[] arguments = construction.parameterTypes.length > 0 ? this.getArguments(construction) : NO_ARGUMENTS;
+
+            try {
+                final Object instance = construction.constructor.invokeExact(arguments);
+
+                return this.provider.cast(instance);
+            } catch (final Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        private Object[] getArguments(final Construction<T> construction) throws ReflectiveOperationException {
+            // A provider can not be handed out before its constructor returns,
+            // so one which depends on itself through its constructor can never
+            // be constructed.
+            if (this.constructing.get() != null) {
+                throw new InstantiationException("Circular constructor dependency on service " + this.provider.getName());
+            }
+
+            this.constructing.set(Boolean.TRUE);
+
+            try {
+                final Object[] arguments = new Object[construction.parameterTypes.length];
+
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = this.framework.resolveDependency(construction.dependencyTypes[i], construction.dependencyNames[i]);
+                }
+
+                return arguments;
+            } finally {
+                this.constructing.remove();
+            }
+        }
+
+        private void create() throws ReflectiveOperationException {
+            // A provider may already have been constructed on demand, when a
+            // circular constructor dependency was resolved.
+            if (this.scope == Scope.SINGLETON) {
+                if (this.instance == null) {
+                    this.instance = this.newInstance();
+                }
+            } else {
+                this.prepare();
+            }
+        }
+
+        private boolean isCreated() {
+            return this.instance != null;
+        }
+
+        private boolean isAvailable() {
+            return this.scope == Scope.SINGLETON ? this.instance != null : this.construction != null;
+        }
+
+        private Class<T> getProvider() {
+            return this.provider;
+        }
+
+        private Type[] getDependencyTypes() {
+            final Construction<T> construction = this.construction;
+
+            return construction != null ? construction.dependencyTypes : new Type[0];
+        }
+
+        private String[] getDependencyNames() {
+            final Construction<T> construction = this.construction;
+
+            return construction != null ? construction.dependencyNames : new String[0];
+        }
+
+        private ServiceReference<T> getReference(final ServiceKey<?> service) {
+            for (final ServiceReference<T> reference : this.references) {
+                if (reference.getService().equals(service)) {
+                    return reference;
+                }
+            }
+
+            final ServiceReference<T> reference = new ServiceReference<T>(service, this);
+
+            this.references.add(reference);
+
+            return reference;
+        }
+
+        private CompletableFuture<Void> activate() {
+            final T instance = this.instance;
+
+            if (instance == null) {
+                return COMPLETED;
+            }
+
+            // A provider is only activated once, even if it was constructed on
+            // demand, and activated then, before it was scheduled for
+            // activation. Later callers wait for the same activation.
+            final CompletableFuture<Void> activation = new CompletableFuture<Void>();
+
+            if (!this.activation.compareAndSet(null, activation)) {
+                final CompletableFuture<Void> currentActivation = this.activation.get();
+
+                return currentActivation != null ? currentActivation : COMPLETED;
+            }
+
+            // Subscribed before its activation methods run, so that it
+            // receives the events its dependencies post while activating.
+            this.framework.eventBus.subscribe(instance);
+
+            LifecycleHooks.forClass(instance.getClass()).activate(instance).whenComplete((v, e) -> activation.complete(null));
+
+            return activation;
+        }
+
+        private CompletableFuture<Void> deactivate() {
+            final T instance = this.instance;
+            final CompletableFuture<Void> activation = this.activation.getAndSet(null);
+
+            if (instance == null || activation == null) {
+                return COMPLETED;
+            }
+
+            this.framework.eventBus.unsubscribe(instance);
+
+            return activation.thenCompose(v -> LifecycleHooks.forClass(instance.getClass()).deactivate(instance));
+        }
+
+        private boolean tryPrepare() {
+            try {
+                this.prepare();
+            } catch (final ReflectiveOperationException e) {
+                // Reported when the provider is constructed.
+                return false;
+            }
+
+            return true;
+        }
+
+        private Class<?> getFactory() {
+            return this.factory;
+        }
+
+        private Scope getScope() {
+            return this.scope;
+        }
+
+        private T getInstance() {
+            final T instance = this.instance;
+
+            if (instance != null) {
+                return instance;
+            }
+
+            switch (this.scope) {
+            case PROTOTYPE:
+                return this.createScopedInstance();
+            case THREAD:
+                return this.threadInstance.get();
+            case REQUEST:
+                final RequestScope requestScope = this.framework.requestScopes.get();
+
+                if (requestScope == null) {
+                    throw new IllegalStateException("No request scope is open for request scoped service " + this.provider.getName());
+                }
+
+                return requestScope.getInstance(this, this::createScopedInstance);
+            default:
+                return this.createInstance();
+            }
+        }
+
+        private T createScopedInstance() {
+            try {
+                final T instance = this.newInstance();
+
+                this.framework.injectServices(this, instance);
+
+                return instance;
+            } catch (final ReflectiveOperationException e) {
+                LOG.error("Unable to create service " + this.provider.getName());
+
+                return null;
+            }
+        }
+
+        private T createInstance() {
+            final CompletableFuture<Void> activation;
+
+            // Lazy construction shares a single lock across the framework, as
+            // providers which depend on each other would otherwise be able to
+            // deadlock while constructing.
+            synchronized (this.framework.lazyLock) {
+                if (this.instance != null) {
+                    return this.instance;
+                }
+
+                // A provider resolved again while injecting its own
+                // dependencies is handed out before it is fully injected.
+                if (this.pendingInstance != null) {
+                    return this.pendingInstance;
+                }
+
+                try {
+                    final long allocatedBytes = FrameworkMetrics.getAllocatedBytes();
+                    final long startTime = System.nanoTime();
+
+                    this.pendingInstance = this.newInstance();
+
+                    this.framework.fireServiceCreated(this.provider, startTime, allocatedBytes);
+
+                    final long injectStartTime = System.nanoTime();
+
+                    this.framework.injectServices(this, this.pendingInstance);
+
+                    this.framework.fireServiceInjected(this.provider, injectStartTime);
+
+                    this.instance = this.pendingInstance;
+                } catch (final ReflectiveOperationException e) {
+                    LOG.error("Unable to create service " + this.provider.getName());
+                } finally {
+                    this.pendingInstance = null;
+                }
+
+                // Providers constructed while the registry is changed are
+                // activated once the registry lock is released.
+                activation = this.instance != null && this.framework.deferActivation(this) ? COMPLETED : this.activate();
+            }
+
+            // Waited for outside the lock, so that asynchronous activation may
+            // obtain other lazily constructed providers. Other threads may
+            // obtain the provider before it is activated.
+            activation.join();
+
+            return this.instance;
+        }
+
+        private Injector<T> getInjector() {
+            final Construction<T> construction = this.construction;
+
+            return construction != null ? construction.injector : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K> Injector<K> findInjector(final Class<K> provider) {
+            try {
+                return (Injector<K>) Class.forName(provider.getName() + Injector.SUFFIX, true, provider.getClassLoader()).newInstance();
+            } catch (final ClassNotFoundException e) {
+                return null;
+            } catch (final ReflectiveOperationException | ClassCastException e) {
+                LOG.warn("Unable to create injector for " + provider.getName() + ", falling back to reflective injection");
+
+                return null;
+            }
+        }
+
+        private static <K> ServiceInstance<K> getInstance(final Framework framework, final Class<K> type, final Class<?> factory, final Scope scope, final Class<?>[] parameterTypes) {
+            return new ServiceInstance<K>(framework, type, factory, scope, parameterTypes);
+        }
+
+        /**
+         * What a provider is constructed and injected with, found once and
+         * never changed.
+         */
+        private static final class Construction<K> {
+
+            private final MethodHandle constructor;
+
+            private final Injector<K> injector;
+
+            private final Class<?>[] parameterTypes;
+
+            private final Type[] dependencyTypes;
+
+            private final String[] dependencyNames;
+
+            private Construction(final MethodHandle constructor, final Injector<K> injector, final Class<?>[] parameterTypes, final Type[] dependencyTypes, final String[] dependencyNames) {
+                this.constructor = constructor;
+                this.injector = injector;
+                this.parameterTypes = parameterTypes;
+                this.dependencyTypes = dependencyTypes;
+                this.dependencyNames = dependencyNames;
+            }
+        }
+    }
+
+    private static final class ServiceReference<T> {
+
+        private final ServiceKey<?> service;
+
+        private final ServiceInstance<T> serviceInstance;
+
+        private final Caching caching;
+
+        private final Interception interception;
+
+        private final Asynchrony asynchrony;
+
+        private final AtomicReference<Object> exposedInstance;
+
+        private final ThreadLocal<Object> threadExposedInstance;
+
+        private volatile Interceptor[] interceptors;
+
+        private ServiceReference(final ServiceKey<?> service, final ServiceInstance<T> serviceInstance) {
+            this.service = service;
+            this.serviceInstance = serviceInstance;
+            this.caching = Caching.forService(service.getRawType(), serviceInstance.getProvider());
+            this.interception = Interception.forService(service.getRawType());
+            this.asynchrony = Asynchrony.forService(service.getRawType(), serviceInstance.getProvider());
+            this.exposedInstance = new AtomicReference<Object>();
+            this.threadExposedInstance = serviceInstance.getScope() == Scope.THREAD ? ThreadLocal.withInitial(this::expose) : null;
+
+            // A prototype is constructed for every lookup, and with it its
+            // caches.
+            if (this.caching != null && serviceInstance.getScope() == Scope.PROTOTYPE) {
+                LOG.warn("Service provider " + serviceInstance.getProvider().getName() + " is a prototype, the results of its cached methods are only cached per instance");
+            }
+        }
+
+        private ServiceKey<?> getService() {
+            return this.service;
+        }
+
+        private ServiceInstance<T> getServiceInstance() {
+            return this.serviceInstance;
+        }
+
+        private Object getInstance() {
+            final Object exposedInstance = this.exposedInstance.get();
+
+            if (exposedInstance != null) {
+                return exposedInstance;
+            }
+
+            // Scoped providers are kept wrapped in their scope, so that calls
+            // within a thread or request share the caches of the provider.
+            switch (this.serviceInstance.getScope()) {
+            case THREAD:
+                return this.threadExposedInstance.get();
+            case REQUEST:
+                final RequestScope requestScope = this.serviceInstance.framework.requestScopes.get();
+
+                return requestScope != null ? requestScope.getInstance(this, this::expose) : this.expose();
+            default:
+                return this.expose();
+            }
+        }
+
+        private Object expose() {
+            final T instance = this.serviceInstance.getInstance();
+
+            if (instance == null) {
+                return null;
+            }
+
+            // Providers of services which are neither cached, intercepted nor
+            // asynchronous are exposed as they are. Every call passes the
+            // interceptors before it may be answered from a cache, and
+            // asynchronous methods are dispatched before they are
+            // intercepted, so interceptors run on the executor.
+            final FrameworkMetrics metrics = this.serviceInstance.framework.metrics;
+            final Object cachedInstance = this.caching != null ? this.caching.cache(instance, metrics::getCacheStats) : instance;
+            final Object interceptedInstance = this.interception != null ? this.interception.intercept(cachedInstance, this.getInterceptors()) : cachedInstance;
+            final Object dispatchedInstance = this.asynchrony != null ? this.asynchrony.dispatch(interceptedInstance, this.serviceInstance.framework.getAsyncExecutor(this.service)) : interceptedInstance;
+
+            // A singleton is only wrapped once, and not while it is still being
+            // injected. Threads which wrap it at once all return the wrapper
+            // published first.
+            if (this.serviceInstance.getScope() == Scope.SINGLETON && this.serviceInstance.instance == instance && !this.exposedInstance.compareAndSet(null, dispatchedInstance)) {
+                return this.exposedInstance.get();
+            }
+
+            return dispatchedInstance;
+        }
+
+        private Interceptor[] getInterceptors() {
+            Interceptor[] interceptors = this.interceptors;
+
+            if (interceptors == null) {
+                interceptors = this.serviceInstance.framework.getInterceptors(this.interception.getInterceptorTypes());
+
+                this.interceptors = interceptors;
+            }
+
+            return interceptors;
+        }
+    }
+
+    private static final class ProviderList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final ServiceReference<?>[] serviceReferences;
+
+        private ProviderList(final ServiceReference<?>[] serviceReferences) {
+            this.serviceReferences = serviceReferences;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(final int index) {
+            return (T) this.serviceReferences[index].getInstance();
+        }
+
+        @Override
+        public int size() {
+            return this.serviceReferences.length;
+        }
+    }
 }
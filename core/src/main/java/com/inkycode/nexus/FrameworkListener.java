@@ -0,0 +1,109 @@
+package com.inkycode.nexus;
+
+/**
+ *
+ * A listener notified of where the framework spends its time.
+ *
+ * Listeners are added with {@link Framework#addListener(FrameworkListener)},
+ * or discovered through {@link java.util.ServiceLoader} when the framework is
+ * first started. Listeners may be notified from several threads at once when the
+ * framework is started in parallel.
+ *
+ */
+public interface FrameworkListener {
+
+    /**
+     * The phases of starting the framework.
+     */
+    enum Phase {
+
+        /**
+         * Finding the service descriptor resources.
+         */
+        RESOURCE_SCAN,
+
+        /**
+         * Reading the service descriptor resources.
+         */
+        DESCRIPTOR_PARSE,
+
+        /**
+         * Loading the described service classes.
+         */
+        CLASS_LOADING,
+
+        /**
+         * Constructing service providers.
+         */
+        INSTANTIATION,
+
+        /**
+         * Injecting service providers.
+         */
+        INJECTION,
+
+        /**
+         * Binding service providers to factories.
+         */
+        FACTORY_NOTIFICATION,
+
+        /**
+         * Activating service providers.
+         */
+        ACTIVATION
+    }
+
+    /**
+     * Called when a phase of starting the framework is complete.
+     *
+     * @param phase
+     *            the phase.
+     * @param nanos
+     *            the time spent in the phase, in nanoseconds.
+     */
+    default void onPhase(final Phase phase, final long nanos) {
+    }
+
+    /**
+     * Called when the framework is started.
+     *
+     * @param nanos
+     *            the time spent starting the framework, in nanoseconds.
+     */
+    default void onStarted(final long nanos) {
+    }
+
+    /**
+     * Called when the framework is stopped.
+     *
+     * @param nanos
+     *            the time spent stopping the framework, in nanoseconds.
+     */
+    default void onStopped(final long nanos) {
+    }
+
+    /**
+     * Called when a singleton service provider is constructed.
+     *
+     * @param provider
+     *            the service provider.
+     * @param nanos
+     *            the time spent constructing the provider, in nanoseconds.
+     * @param allocatedBytes
+     *            the bytes allocated constructing the provider, or -1 if
+     *            allocations can not be measured by the JVM.
+     */
+    default void onServiceCreated(final Class<?> provider, final long nanos, final long allocatedBytes) {
+    }
+
+    /**
+     * Called when a singleton service provider is injected.
+     *
+     * @param provider
+     *            the service provider.
+     * @param nanos
+     *            the time spent injecting the provider, in nanoseconds.
+     */
+    default void onServiceInjected(final Class<?> provider, final long nanos) {
+    }
+}
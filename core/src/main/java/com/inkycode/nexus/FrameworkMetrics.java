@@ -0,0 +1,175 @@
+package com.inkycode.nexus;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ *
+ * Collects the metrics of a framework.
+ *
+ * Lookups are counted with {@link LongAdder}s, so counting stays cheap when
+ * many threads obtain services at once.
+ *
+ */
+final class FrameworkMetrics implements FrameworkListener, FrameworkMetricsMXBean {
+
+    private static final com.sun.management.ThreadMXBean THREADS = getThreads();
+
+    private final ConcurrentMap<String, Long> phaseTimes;
+
+    private final ConcurrentMap<String, Long> creationTimes;
+
+    private final ConcurrentMap<String, Long> allocatedBytes;
+
+    private final ConcurrentMap<String, Long> injectionTimes;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final ConcurrentMap<String, CacheStats> cacheStats;
+
+    private volatile long startTime;
+
+    FrameworkMetrics() {
+        this.phaseTimes = new ConcurrentHashMap<String, Long>();
+        this.creationTimes = new ConcurrentHashMap<String, Long>();
+        this.allocatedBytes = new ConcurrentHashMap<String, Long>();
+        this.injectionTimes = new ConcurrentHashMap<String, Long>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.cacheStats = new ConcurrentHashMap<String, CacheStats>();
+    }
+
+    void recordHit() {
+        this.hits.increment();
+    }
+
+    void recordMiss() {
+        this.misses.increment();
+    }
+
+    /**
+     * Returns the statistics of the caches of the given service method, shared
+     * by every provider instance.
+     *
+     * @param method
+     *            the method.
+     * @return the statistics.
+     */
+    CacheStats getCacheStats(final String method) {
+        final CacheStats cacheStats = this.cacheStats.get(method);
+
+        return cacheStats != null ? cacheStats : this.cacheStats.computeIfAbsent(method, m -> new CacheStats());
+    }
+
+    @Override
+    public void onPhase(final Phase phase, final long nanos) {
+        this.phaseTimes.merge(phase.name(), nanos, Long::sum);
+    }
+
+    @Override
+    public void onStarted(final long nanos) {
+        this.startTime = nanos;
+    }
+
+    @Override
+    public void onServiceCreated(final Class<?> provider, final long nanos, final long allocatedBytes) {
+        this.creationTimes.put(provider.getName(), nanos);
+
+        if (allocatedBytes >= 0) {
+            this.allocatedBytes.put(provider.getName(), allocatedBytes);
+        }
+    }
+
+    @Override
+    public void onServiceInjected(final Class<?> provider, final long nanos) {
+        this.injectionTimes.put(provider.getName(), nanos);
+    }
+
+    @Override
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseTimes() {
+        return new TreeMap<String, Long>(this.phaseTimes);
+    }
+
+    @Override
+    public Map<String, Long> getServiceCreationTimes() {
+        return new TreeMap<String, Long>(this.creationTimes);
+    }
+
+    @Override
+    public Map<String, Long> getServiceAllocatedBytes() {
+        return new TreeMap<String, Long>(this.allocatedBytes);
+    }
+
+    @Override
+    public Map<String, Long> getServiceInjectionTimes() {
+        return new TreeMap<String, Long>(this.injectionTimes);
+    }
+
+    @Override
+    public long getServiceHits() {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getServiceMisses() {
+        return this.misses.sum();
+    }
+
+    @Override
+    public Map<String, Long> getCacheHits() {
+        return this.getCacheCounts(CacheStats::getHitCount);
+    }
+
+    @Override
+    public Map<String, Long> getCacheMisses() {
+        return this.getCacheCounts(CacheStats::getMissCount);
+    }
+
+    @Override
+    public Map<String, Long> getCacheEvictions() {
+        return this.getCacheCounts(CacheStats::getEvictionCount);
+    }
+
+    private Map<String, Long> getCacheCounts(final ToLongFunction<CacheStats> count) {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+
+        for (final Map.Entry<String, CacheStats> entry : this.cacheStats.entrySet()) {
+            counts.put(entry.getKey(), count.applyAsLong(entry.getValue()));
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far.
+     *
+     * @return the allocated bytes, or -1 if allocations can not be measured by
+     *         the JVM.
+     */
+    static long getAllocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreads() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return (com.sun.management.ThreadMXBean) threads;
+        }
+
+        return null;
+    }
+}
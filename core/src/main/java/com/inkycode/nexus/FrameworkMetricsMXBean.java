@@ -0,0 +1,85 @@
+package com.inkycode.nexus;
+
+import java.util.Map;
+
+/**
+ *
+ * The metrics of a framework, as exposed through JMX.
+ *
+ */
+public interface FrameworkMetricsMXBean {
+
+    /**
+     * Returns the time spent starting the framework.
+     *
+     * @return the start time in nanoseconds, or 0 if not started.
+     */
+    long getStartTime();
+
+    /**
+     * Returns the time spent in each phase of starting the framework.
+     *
+     * @return the phase times in nanoseconds, keyed by phase.
+     */
+    Map<String, Long> getPhaseTimes();
+
+    /**
+     * Returns the time spent constructing each singleton service provider.
+     *
+     * @return the construction times in nanoseconds, keyed by provider.
+     */
+    Map<String, Long> getServiceCreationTimes();
+
+    /**
+     * Returns the bytes allocated constructing each singleton service
+     * provider, if the JVM can measure allocations.
+     *
+     * @return the allocated bytes, keyed by provider.
+     */
+    Map<String, Long> getServiceAllocatedBytes();
+
+    /**
+     * Returns the time spent injecting each singleton service provider.
+     *
+     * @return the injection times in nanoseconds, keyed by provider.
+     */
+    Map<String, Long> getServiceInjectionTimes();
+
+    /**
+     * Returns the number of service lookups which found a provider.
+     *
+     * @return the number of hits.
+     */
+    long getServiceHits();
+
+    /**
+     * Returns the number of service lookups which found no provider.
+     *
+     * @return the number of misses.
+     */
+    long getServiceMisses();
+
+    /**
+     * Returns the number of calls of each cached service method which found a
+     * cached result.
+     *
+     * @return the number of hits, keyed by method.
+     */
+    Map<String, Long> getCacheHits();
+
+    /**
+     * Returns the number of calls of each cached service method which found
+     * no cached result.
+     *
+     * @return the number of misses, keyed by method.
+     */
+    Map<String, Long> getCacheMisses();
+
+    /**
+     * Returns the number of results of each cached service method evicted to
+     * make room for others.
+     *
+     * @return the number of evictions, keyed by method.
+     */
+    Map<String, Long> getCacheEvictions();
+}
@@ -0,0 +1,28 @@
+package com.inkycode.nexus;
+
+/**
+ *
+ * An injector generated at compile time for a service provider, which assigns
+ * the providers injected fields directly rather than through reflection.
+ *
+ * @param <T>
+ *            the type of service provider.
+ */
+public interface Injector<T> {
+
+    /**
+     * The suffix appended to the binary name of a service provider to obtain the
+     * name of its generated injector.
+     */
+    String SUFFIX = "$$Injector";
+
+    /**
+     * Injects services into the given service provider instance.
+     *
+     * @param framework
+     *            the framework to obtain services from.
+     * @param instance
+     *            the service provider instance to inject.
+     */
+    void inject(Framework framework, T instance);
+}
@@ -0,0 +1,108 @@
+package com.inkycode.nexus;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.annotations.Intercept;
+
+/**
+ *
+ * Wraps service providers in the implementation generated for their
+ * intercepted service interface, the interfaces annotated with
+ * {@link Intercept}.
+ *
+ * The generated implementation of an interface is only looked up once.
+ * Interfaces which are not intercepted have no interception, so obtaining
+ * their providers costs nothing more.
+ *
+ */
+final class Interception {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Interception.class);
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object.class, Interceptor[].class);
+
+    private static final Interception NONE = new Interception(null, null);
+
+    private static final ClassValue<Interception> INTERCEPTIONS = new ClassValue<Interception>() {
+
+        @Override
+        protected Interception computeValue(final Class<?> service) {
+            return findInterception(service);
+        }
+
+    };
+
+    private final Class<? extends Interceptor>[] interceptorTypes;
+
+    private final MethodHandle constructor;
+
+    private Interception(final Class<? extends Interceptor>[] interceptorTypes, final MethodHandle constructor) {
+        this.interceptorTypes = interceptorTypes;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Returns the interceptors to obtain for each provider of the service.
+     *
+     * @return the interceptor types, in the order they are called.
+     */
+    Class<? extends Interceptor>[] getInterceptorTypes() {
+        return this.interceptorTypes;
+    }
+
+    /**
+     * Wraps the given service provider instance.
+     *
+     * @param instance
+     *            the service provider instance.
+     * @param interceptors
+     *            the interceptors to pass method calls through.
+     * @return the wrapped instance, or the given instance if it could not be
+     *         wrapped.
+     */
+    Object intercept(final Object instance, final Interceptor[] interceptors) {
+        try {
+            return this.constructor.invokeExact(instance, interceptors);
+        } catch (final Throwable e) {
+            LOG.error("Unable to intercept service provider " + instance.getClass().getName(), e);
+
+            return instance;
+        }
+    }
+
+    /**
+     * Returns the interception of the given service.
+     *
+     * @param service
+     *            the service interface.
+     * @return the interception, or null if the service is not intercepted.
+     */
+    static Interception forService(final Class<?> service) {
+        final Interception interception = INTERCEPTIONS.get(service);
+
+        return interception != NONE ? interception : null;
+    }
+
+    private static Interception findInterception(final Class<?> service) {
+        final Intercept intercept = service.getAnnotation(Intercept.class);
+
+        if (!service.isInterface() || intercept == null || intercept.value().length == 0) {
+            return NONE;
+        }
+
+        try {
+            final Class<?> interceptedClass = Class.forName(service.getName() + Interceptor.SUFFIX, true, service.getClassLoader());
+
+            return new Interception(intercept.value(), MethodHandles.publicLookup().findConstructor(interceptedClass, MethodType.methodType(void.class, Object.class, Interceptor[].class)).asType(CONSTRUCTOR_TYPE));
+        } catch (final ReflectiveOperationException e) {
+            LOG.error("Unable to find the intercepted implementation of " + service.getName() + ", check that the annotation processor ran. Its providers are not intercepted.");
+
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.inkycode.nexus;
+
+/**
+ *
+ * Intercepts the method calls of services whose interface is annotated with
+ * {@link com.inkycode.nexus.annotations.Intercept}, to time, count or retry
+ * them for example.
+ *
+ */
+public interface Interceptor {
+
+    /**
+     * The suffix appended to the binary name of a service interface to obtain
+     * the name of its generated intercepted implementation.
+     */
+    String SUFFIX = "$$Intercepted";
+
+    /**
+     * Intercepts a method call.
+     *
+     * @param invocation
+     *            the method call, which is continued by calling
+     *            {@link Invocation#proceed()}.
+     * @return the result of the method call, or null if the method returns
+     *         nothing.
+     * @throws Throwable
+     *             if the method call failed.
+     */
+    Object intercept(Invocation invocation) throws Throwable;
+}
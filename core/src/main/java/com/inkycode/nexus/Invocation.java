@@ -0,0 +1,127 @@
+package com.inkycode.nexus;
+
+import java.lang.reflect.Method;
+
+/**
+ *
+ * A method call passing through the interceptors of a service.
+ *
+ * Invocations are created by the generated implementations of intercepted
+ * service interfaces, one for each method call. An invocation is not thread
+ * safe, and must only be proceeded with on the thread it was passed to.
+ *
+ */
+public final class Invocation {
+
+    private final Interceptor[] interceptors;
+
+    private final Object target;
+
+    private final Method method;
+
+    private final Object[] arguments;
+
+    private final Call call;
+
+    private int index;
+
+    /**
+     * Generates a new invocation.
+     *
+     * @param interceptors
+     *            the interceptors to pass the method call through.
+     * @param target
+     *            the service provider the method is called on.
+     * @param method
+     *            the service interface method.
+     * @param arguments
+     *            the method arguments.
+     * @param call
+     *            calls the method on the service provider.
+     */
+    public Invocation(final Interceptor[] interceptors, final Object target, final Method method, final Object[] arguments, final Call call) {
+        this.interceptors = interceptors;
+        this.target = target;
+        this.method = method;
+        this.arguments = arguments;
+        this.call = call;
+    }
+
+    /**
+     * Returns the service provider the method is called on.
+     *
+     * @return the service provider.
+     */
+    public Object getTarget() {
+        return this.target;
+    }
+
+    /**
+     * Returns the service interface method being called.
+     *
+     * @return the method.
+     */
+    public Method getMethod() {
+        return this.method;
+    }
+
+    /**
+     * Returns the method arguments, which interceptors may replace before
+     * proceeding.
+     *
+     * @return the method arguments.
+     */
+    public Object[] getArguments() {
+        return this.arguments;
+    }
+
+    /**
+     * Passes the method call to the next interceptor, or calls the method on
+     * the service provider if every interceptor has been passed.
+     *
+     * An interceptor may proceed more than once, to retry a failed call.
+     *
+     * @return the result of the method call, or null if the method returns
+     *         nothing.
+     * @throws Throwable
+     *             if the method call failed.
+     */
+    public Object proceed() throws Throwable {
+        final int index = this.index;
+
+        if (index == this.interceptors.length) {
+            return this.call.call(this.target, this.arguments);
+        }
+
+        // The position is restored once the interceptor returns, so that an
+        // interceptor proceeding again passes the same interceptors again.
+        this.index = index + 1;
+
+        try {
+            return this.interceptors[index].intercept(this);
+        } finally {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Calls a service interface method on a service provider.
+     */
+    @FunctionalInterface
+    public interface Call {
+
+        /**
+         * Calls the method.
+         *
+         * @param target
+         *            the service provider.
+         * @param arguments
+         *            the method arguments.
+         * @return the result of the method call, or null if the method
+         *         returns nothing.
+         * @throws Throwable
+         *             if the method call failed.
+         */
+        Object call(Object target, Object[] arguments) throws Throwable;
+    }
+}
@@ -0,0 +1,185 @@
+package com.inkycode.nexus;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.inkycode.nexus.annotations.Activate;
+import com.inkycode.nexus.annotations.Deactivate;
+
+/**
+ *
+ * Calls the lifecycle methods of service providers, the methods annotated with
+ * {@link Activate} and {@link Deactivate}.
+ *
+ * The methods of a provider class are only looked up once. Activation methods
+ * of super classes are called before those of sub classes, and deactivation
+ * methods the other way around.
+ *
+ */
+final class LifecycleHooks {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LifecycleHooks.class);
+
+    private static final MethodType HOOK_METHOD_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private static final ClassValue<LifecycleHooks> HOOKS = new ClassValue<LifecycleHooks>() {
+
+        @Override
+        protected LifecycleHooks computeValue(final Class<?> providerClass) {
+            return new LifecycleHooks(providerClass);
+        }
+
+    };
+
+    private final MethodHandle[] activateMethods;
+
+    private final MethodHandle[] deactivateMethods;
+
+    private LifecycleHooks(final Class<?> providerClass) {
+        this.activateMethods = getMethods(providerClass, Activate.class, false);
+        this.deactivateMethods = getMethods(providerClass, Deactivate.class, true);
+    }
+
+    /**
+     * Activates the given service provider instance.
+     *
+     * @param instance
+     *            the service provider instance.
+     * @return a future completed once the instance is activated. It never
+     *         completes exceptionally, failures are logged.
+     */
+    CompletableFuture<Void> activate(final Object instance) {
+        return invoke(this.activateMethods, instance);
+    }
+
+    /**
+     * Deactivates the given service provider instance.
+     *
+     * @param instance
+     *            the service provider instance.
+     * @return a future completed once the instance is deactivated. It never
+     *         completes exceptionally, failures are logged.
+     */
+    CompletableFuture<Void> deactivate(final Object instance) {
+        return invoke(this.deactivateMethods, instance);
+    }
+
+    /**
+     * Returns the lifecycle hooks of the given service provider class.
+     *
+     * @param providerClass
+     *            the service provider class.
+     * @return the lifecycle hooks.
+     */
+    static LifecycleHooks forClass(final Class<?> providerClass) {
+        return HOOKS.get(providerClass);
+    }
+
+    private static CompletableFuture<Void> invoke(final MethodHandle[] methods, final Object instance) {
+        // Most providers have no hooks, and cost nothing more.
+        if (methods.length == 0) {
+            return COMPLETED;
+        }
+
+        CompletableFuture<Void> future = COMPLETED;
+
+        for (final MethodHandle method : methods) {
+            future = future.thenCompose(v -> invoke(method, instance));
+        }
+
+        return future;
+    }
+
+    private static CompletableFuture<Void> invoke(final MethodHandle method, final Object instance) {
+        final Object result;
+
+        try {
+            result = method.invokeExact(instance);
+        } catch (final Throwable e) {
+            LOG.error("Unable to invoke lifecycle method of " + instance.getClass().getName(), e);
+
+            return COMPLETED;
+        }
+
+        if (!(result instanceof CompletionStage)) {
+            return COMPLETED;
+        }
+
+        return ((CompletionStage<?>) result).handle((value, e) -> {
+            if (e != null) {
+                LOG.error("Lifecycle method of " + instance.getClass().getName() + " failed", e);
+            }
+
+            return (Void) null;
+        }).toCompletableFuture();
+    }
+
+    private static MethodHandle[] getMethods(final Class<?> providerClass, final Class<? extends Annotation> annotation, final boolean subClassesFirst) {
+        final List<MethodHandle> methods = new ArrayList<MethodHandle>();
+
+        for (Class<?> type = providerClass; type != null; type = type.getSuperclass()) {
+            final List<MethodHandle> typeMethods = new ArrayList<MethodHandle>();
+
+            for (final Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(annotation) && method.getParameterTypes().length == 0 && !isOverridden(method, providerClass, annotation)) {
+                    try {
+                        method.setAccessible(true);
+
+                        typeMethods.add(MethodHandles.lookup().unreflect(method).asType(HOOK_METHOD_TYPE));
+                    } catch (final IllegalAccessException | RuntimeException e) {
+                        LOG.error("Unable to access lifecycle method " + method.getName() + " of " + type.getName() + ", check the method signature.");
+                    }
+                }
+            }
+
+            methods.addAll(subClassesFirst ? methods.size() : 0, typeMethods);
+        }
+
+        return methods.toArray(new MethodHandle[methods.size()]);
+    }
+
+    private static boolean isOverridden(final Method method, final Class<?> providerClass, final Class<? extends Annotation> annotation) {
+        final int modifiers = method.getModifiers();
+
+        if (Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers)) {
+            return false;
+        }
+
+        // Methods are called virtually, so a lifecycle method overridden by
+        // another lifecycle method is only called once, through its override.
+        for (Class<?> type = providerClass; type != method.getDeclaringClass(); type = type.getSuperclass()) {
+            try {
+                final Method overrider = type.getDeclaredMethod(method.getName());
+                final boolean accessible = Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers) || isSamePackage(type, method.getDeclaringClass());
+
+                if (accessible && !Modifier.isStatic(overrider.getModifiers()) && overrider.isAnnotationPresent(annotation)) {
+                    return true;
+                }
+            } catch (final NoSuchMethodException e) {
+                // Not overridden by this class.
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isSamePackage(final Class<?> type, final Class<?> otherType) {
+        final String name = type.getName();
+        final String otherName = otherType.getName();
+
+        return type.getClassLoader() == otherType.getClassLoader() && name.lastIndexOf('.') == otherName.lastIndexOf('.') && name.regionMatches(0, otherName, 0, Math.max(name.lastIndexOf('.'), 0));
+    }
+}
@@ -0,0 +1,270 @@
+package com.inkycode.nexus;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * Caches the results of a service method annotated with
+ * {@link com.inkycode.nexus.annotations.Cached}, keyed by its arguments.
+ *
+ * Used by the generated implementations of service interfaces with cached
+ * methods, whose keys are built without reflection. The cache is split into
+ * stripes by key hash, each a least recently used map behind its own lock, so
+ * threads calling with different arguments rarely contend. A result is
+ * computed outside the lock, so concurrent misses of the same key may each
+ * call the provider.
+ *
+ */
+public final class MethodCache {
+
+    /**
+     * The suffix appended to the binary name of a service interface to obtain
+     * the name of its generated cached implementation.
+     */
+    public static final String SUFFIX = "$$Cached";
+
+    /**
+     * Returned by {@link #get(Object)} when no result is cached, as null may
+     * be a cached result.
+     */
+    public static final Object MISSING = new Object();
+
+    private static final Object NO_ARGUMENTS = new Object();
+
+    private static final Object NULL_ARGUMENT = new Object();
+
+    private static final int MAXIMUM_STRIPES = 16;
+
+    private static final int MINIMUM_STRIPE_SIZE = 32;
+
+    private final Stripe[] stripes;
+
+    private final long expireAfterWrite;
+
+    private final CacheStats stats;
+
+    /**
+     * Generates a new method cache.
+     *
+     * @param maximumSize
+     *            the maximum number of results to cache.
+     * @param expireAfterWrite
+     *            the time after which a result expires in nanoseconds, or 0
+     *            if results never expire.
+     * @param stats
+     *            the statistics to record hits, misses and evictions in.
+     */
+    public MethodCache(final int maximumSize, final long expireAfterWrite, final CacheStats stats) {
+        // Small caches are not striped, so that they still evict the least
+        // recently used result overall.
+        int stripeCount = 1;
+
+        while (stripeCount < MAXIMUM_STRIPES && maximumSize / (stripeCount * 2) >= MINIMUM_STRIPE_SIZE) {
+            stripeCount *= 2;
+        }
+
+        this.stripes = new Stripe[stripeCount];
+
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe((maximumSize + stripeCount - 1) / stripeCount);
+        }
+
+        this.expireAfterWrite = expireAfterWrite;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns the key of a method without arguments.
+     *
+     * @return the key.
+     */
+    public static Object key() {
+        return NO_ARGUMENTS;
+    }
+
+    /**
+     * Returns the key of a method with a single argument.
+     *
+     * @param argument
+     *            the argument.
+     * @return the key.
+     */
+    public static Object key(final Object argument) {
+        if (argument == null) {
+            return NULL_ARGUMENT;
+        }
+
+        // Arrays are compared by their elements.
+        return argument.getClass().isArray() ? new Key(new Object[] { argument }) : argument;
+    }
+
+    /**
+     * Returns the key of a method with several arguments.
+     *
+     * @param arguments
+     *            the arguments.
+     * @return the key.
+     */
+    public static Object key(final Object... arguments) {
+        return new Key(arguments);
+    }
+
+    /**
+     * Returns the result cached for the given key.
+     *
+     * @param key
+     *            the key.
+     * @return the result, which may be null, or {@link #MISSING} if no result
+     *         is cached.
+     */
+    public Object get(final Object key) {
+        final Stripe stripe = this.getStripe(key);
+        final Object result;
+
+        synchronized (stripe) {
+            final CachedResult cachedResult = stripe.get(key);
+
+            if (cachedResult == null) {
+                result = MISSING;
+            } else if (cachedResult.expiresAt != 0 && System.nanoTime() - cachedResult.expiresAt >= 0) {
+                stripe.remove(key);
+
+                result = MISSING;
+            } else {
+                result = cachedResult.result;
+            }
+        }
+
+        if (result == MISSING) {
+            this.stats.recordMiss();
+        } else {
+            this.stats.recordHit();
+        }
+
+        return result;
+    }
+
+    /**
+     * Caches a result for the given key, evicting the least recently used
+     * result of the keys stripe if it is full.
+     *
+     * @param key
+     *            the key.
+     * @param result
+     *            the result, which may be null.
+     */
+    public void put(final Object key, final Object result) {
+        // An expiry time of 0 means never, so expiring results are given an
+        // odd one.
+        final long expiresAt = this.expireAfterWrite > 0 ? (System.nanoTime() + this.expireAfterWrite) | 1 : 0;
+        final Stripe stripe = this.getStripe(key);
+
+        synchronized (stripe) {
+            stripe.put(key, new CachedResult(result, expiresAt));
+        }
+    }
+
+    /**
+     * Returns the number of cached results, including expired results which
+     * have not been removed yet.
+     *
+     * @return the number of results.
+     */
+    public int size() {
+        int size = 0;
+
+        for (final Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public void invalidateAll() {
+        for (final Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of stripes the cache is split into.
+     *
+     * @return the number of stripes.
+     */
+    int getStripeCount() {
+        return this.stripes.length;
+    }
+
+    private Stripe getStripe(final Object key) {
+        final int hash = key.hashCode();
+
+        return this.stripes[(hash ^ (hash >>> 16)) & (this.stripes.length - 1)];
+    }
+
+    private final class Stripe extends LinkedHashMap<Object, CachedResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private Stripe(final int maximumSize) {
+            super(16, 0.75f, true);
+
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Object, CachedResult> eldest) {
+            if (this.size() <= this.maximumSize) {
+                return false;
+            }
+
+            MethodCache.this.stats.recordEviction();
+
+            return true;
+        }
+    }
+
+    private static final class CachedResult {
+
+        private final Object result;
+
+        private final long expiresAt;
+
+        private CachedResult(final Object result, final long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+
+        private final Object[] arguments;
+
+        private final int hash;
+
+        private Key(final Object[] arguments) {
+            this.arguments = arguments;
+            this.hash = Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            return object instanceof Key && ((Key) object).hash == this.hash && Arrays.deepEquals(((Key) object).arguments, this.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.inkycode.nexus;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ *
+ * The providers of a service, kept in order of selection: highest priority
+ * first, and among equal priorities the provider registered first.
+ *
+ * Each provider is kept alongside a single primitive key encoding its priority
+ * and registration sequence, so ordering needs no comparator and a provider
+ * is inserted in place by binary search. Not thread safe, the framework only
+ * modifies an index under its registry lock.
+ *
+ * @param <E>
+ *            the type of provider.
+ */
+final class PriorityIndex<E> implements Iterable<E> {
+
+    private long[] keys;
+
+    private Object[] elements;
+
+    private int size;
+
+    PriorityIndex() {
+        this.keys = new long[1];
+        this.elements = new Object[1];
+    }
+
+    /**
+     * Adds a provider to the index.
+     *
+     * @param element
+     *            the provider.
+     * @param priority
+     *            the providers priority.
+     * @param sequence
+     *            the providers registration sequence, which orders providers
+     *            of equal priority.
+     */
+    void add(final E element, final int priority, final int sequence) {
+        final long key = key(priority, sequence);
+
+        int position = Arrays.binarySearch(this.keys, 0, this.size, key);
+
+        if (position < 0) {
+            position = -position - 1;
+        }
+
+        if (this.size == this.keys.length) {
+            final int capacity = this.size + (this.size >> 1) + 1;
+
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.elements = Arrays.copyOf(this.elements, capacity);
+        }
+
+        System.arraycopy(this.keys, position, this.keys, position + 1, this.size - position);
+        System.arraycopy(this.elements, position, this.elements, position + 1, this.size - position);
+
+        this.keys[position] = key;
+        this.elements[position] = element;
+        this.size++;
+    }
+
+    /**
+     * Removes a provider from the index.
+     *
+     * @param element
+     *            the provider, compared by identity.
+     * @return true if the provider was in the index, false otherwise.
+     */
+    boolean remove(final E element) {
+        return this.removeIf(e -> e == element);
+    }
+
+    /**
+     * Removes the providers which match the given predicate.
+     *
+     * @param predicate
+     *            the predicate.
+     * @return true if any provider was removed, false otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    boolean removeIf(final Predicate<? super E> predicate) {
+        int retained = 0;
+
+        for (int i = 0; i < this.size; i++) {
+            if (!predicate.test((E) this.elements[i])) {
+                this.keys[retained] = this.keys[i];
+                this.elements[retained] = this.elements[i];
+                retained++;
+            }
+        }
+
+        final boolean removed = retained < this.size;
+
+        Arrays.fill(this.elements, retained, this.size, null);
+
+        this.size = retained;
+
+        return removed;
+    }
+
+    /**
+     * Returns the provider which is selected for the service.
+     *
+     * @return the provider, or null if the index is empty.
+     */
+    @SuppressWarnings("unchecked")
+    E first() {
+        return this.size > 0 ? (E) this.elements[0] : null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Copies the providers into the given array, in order of selection.
+     *
+     * @param array
+     *            an array at least as long as the index.
+     * @return the given array.
+     */
+    E[] toArray(final E[] array) {
+        System.arraycopy(this.elements, 0, array, 0, this.size);
+
+        return array;
+    }
+
+    /**
+     * Returns an iterator over the providers in order of selection. The
+     * iterator does not support removal.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < PriorityIndex.this.size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (this.index >= PriorityIndex.this.size) {
+                    throw new NoSuchElementException();
+                }
+
+                return (E) PriorityIndex.this.elements[this.index++];
+            }
+
+        };
+    }
+
+    private static long key(final int priority, final int sequence) {
+        // The complement of the priority in the high half sorts higher
+        // priorities first, the unsigned sequence in the low half then sorts
+        // earlier registrations first.
+        return ((long) ~priority << 32) | (sequence & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,58 @@
+package com.inkycode.nexus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ *
+ * A request scope, which holds the request scoped service provider instances
+ * for the thread that opened it until it is closed.
+ *
+ */
+public final class RequestScope implements AutoCloseable {
+
+    private final Framework framework;
+
+    private final RequestScope parent;
+
+    private final Map<Object, Object> instances;
+
+    RequestScope(final Framework framework, final RequestScope parent) {
+        this.framework = framework;
+        this.parent = parent;
+        this.instances = new HashMap<Object, Object>();
+    }
+
+    RequestScope getParent() {
+        return this.parent;
+    }
+
+    <T> T getInstance(final Object key, final Supplier<T> supplier) {
+        @SuppressWarnings("unchecked")
+        T instance = (T) this.instances.get(key);
+
+        // Not computeIfAbsent, as creating an instance may create other request
+        // scoped instances.
+        if (instance == null) {
+            instance = supplier.get();
+
+            if (instance != null) {
+                this.instances.put(key, instance);
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Closes the request scope, discarding its instances and restoring the
+     * request scope it was opened within, if any.
+     */
+    @Override
+    public void close() {
+        this.instances.clear();
+
+        this.framework.closeRequestScope(this);
+    }
+}
@@ -0,0 +1,30 @@
+package com.inkycode.nexus;
+
+/**
+ *
+ * The scopes in which a service provider instance can be shared.
+ *
+ */
+public enum Scope {
+
+    /**
+     * A single instance is shared by every caller.
+     */
+    SINGLETON,
+
+    /**
+     * A new instance is created every time the service is obtained.
+     */
+    PROTOTYPE,
+
+    /**
+     * An instance is shared by every caller on the same thread.
+     */
+    THREAD,
+
+    /**
+     * An instance is shared by every caller within the same request scope, see
+     * {@link Framework#openRequestScope()}.
+     */
+    REQUEST
+}
@@ -0,0 +1,415 @@
+package com.inkycode.nexus;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *
+ * Identifies a service by its type, including any type arguments, and an
+ * optional name given by {@link javax.inject.Named}.
+ *
+ * Every distinct key is interned, and each framework gives the keys it resolves
+ * providers of small integer ids of its own, so it finds the providers of a key
+ * by indexing an array rather than by hashing types. A key remembers its id in
+ * the framework which last looked it up. Keys are interned by the identity of
+ * their service class, so classes of the same name from different class
+ * loaders are different services, and each key of a class is only created
+ * once.
+ *
+ * A key of a generic service can be created from a type captured at compile
+ * time, or by subclassing, as in
+ * {@code new ServiceKey<Repository<User>>() {}}.
+ *
+ * @param <T>
+ *            the type of service.
+ */
+public class ServiceKey<T> {
+
+    private static final ClassValue<ClassKeys> CLASS_KEYS = new ClassValue<ClassKeys>() {
+
+        @Override
+        protected ClassKeys computeValue(final Class<?> service) {
+            return new ClassKeys(service);
+        }
+
+    };
+
+    private final Class<?> rawType;
+
+    private final String typeName;
+
+    private final String name;
+
+    // The interned key of the same service, this key itself unless it was
+    // created by subclassing.
+    private final ServiceKey<?> interned;
+
+    // Only assigned on interned keys, the id of the key in the framework which
+    // last looked it up.
+    private volatile Id id;
+
+    /**
+     * Generates a key for the type argument of the subclass.
+     */
+    protected ServiceKey() {
+        this(null);
+    }
+
+    /**
+     * Generates a key for the type argument of the subclass with the given
+     * name.
+     *
+     * @param name
+     *            the name, or null for an unnamed service.
+     */
+    protected ServiceKey(final String name) {
+        final Type superclass = this.getClass().getGenericSuperclass();
+
+        if (!(superclass instanceof ParameterizedType)) {
+            throw new IllegalStateException("A service key must be given a type argument");
+        }
+
+        final Type type = ((ParameterizedType) superclass).getActualTypeArguments()[0];
+
+        this.rawType = getRawType(type);
+        this.typeName = getTypeName(type);
+        this.name = name;
+
+        if (this.rawType == null || this.typeName == null) {
+            throw new IllegalArgumentException("Type " + type.getTypeName() + " can not identify a service");
+        }
+
+        this.interned = intern(this.rawType, this.typeName, name);
+    }
+
+    private ServiceKey(final Class<?> rawType, final String typeName, final String name) {
+        this.rawType = rawType;
+        this.typeName = typeName;
+        this.name = name;
+        this.interned = this;
+    }
+
+    /**
+     * Returns the key of the given service class.
+     *
+     * @param service
+     *            the service class.
+     * @param <T>
+     *            the type of service.
+     * @return the key.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ServiceKey<T> of(final Class<T> service) {
+        return (ServiceKey<T>) CLASS_KEYS.get(service).key;
+    }
+
+    /**
+     * Returns the key of the given named service class.
+     *
+     * @param service
+     *            the service class.
+     * @param name
+     *            the name, or null for an unnamed service.
+     * @param <T>
+     *            the type of service.
+     * @return the key.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ServiceKey<T> of(final Class<T> service, final String name) {
+        return name == null ? of(service) : (ServiceKey<T>) intern(service, getTypeName(service), name);
+    }
+
+    /**
+     * Returns the key of the given service type, as described by the type name
+     * captured at compile time. Used by generated code and service
+     * descriptors.
+     *
+     * @param rawType
+     *            the service class.
+     * @param typeName
+     *            the canonical name of the service type, the binary name of the
+     *            service class followed by its type arguments.
+     * @param name
+     *            the name, or null for an unnamed service.
+     * @param <T>
+     *            the type of service.
+     * @return the key.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ServiceKey<T> of(final Class<?> rawType, final String typeName, final String name) {
+        if (name == null && typeName == null) {
+            return (ServiceKey<T>) of(rawType);
+        }
+
+        return (ServiceKey<T>) intern(rawType, typeName != null ? typeName : getTypeName(rawType), name);
+    }
+
+    /**
+     * Returns the key of the given service type.
+     *
+     * @param type
+     *            the service type.
+     * @param name
+     *            the name, or null for an unnamed service.
+     * @param <T>
+     *            the type of service.
+     * @return the key, or null if the type can not identify a service, such
+     *         as a type variable.
+     */
+    public static <T> ServiceKey<T> of(final Type type, final String name) {
+        final Class<?> rawType = getRawType(type);
+        final String typeName = getTypeName(type);
+
+        return rawType != null && typeName != null ? ServiceKey.<T> of(rawType, typeName, name) : null;
+    }
+
+    /**
+     * Returns the key of the given type, or of its class if its type arguments
+     * can not identify a service.
+     */
+    static ServiceKey<?> forDependency(final Type type, final String name) {
+        final ServiceKey<?> key = of(type, name);
+
+        if (key != null) {
+            return key;
+        }
+
+        final Class<?> rawType = getRawType(type);
+
+        return rawType != null ? of(rawType, name) : null;
+    }
+
+    /**
+     * Returns the service class.
+     *
+     * @return the service class.
+     */
+    public Class<?> getRawType() {
+        return this.rawType;
+    }
+
+    /**
+     * Returns the canonical name of the service type.
+     *
+     * @return the type name.
+     */
+    public String getTypeName() {
+        return this.typeName;
+    }
+
+    /**
+     * Returns the name of the service.
+     *
+     * @return the name, or null for an unnamed service.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Determines if the key identifies a generic service by its type
+     * arguments.
+     *
+     * @return true if the key has type arguments, false otherwise.
+     */
+    public boolean isParameterized() {
+        return !this.typeName.equals(this.rawType.getName());
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        return object instanceof ServiceKey && ((ServiceKey<?>) object).interned == this.interned;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this.interned);
+    }
+
+    @Override
+    public String toString() {
+        return this.name != null ? "@Named(" + this.name + ") " + this.typeName : this.typeName;
+    }
+
+    private static ServiceKey<?> intern(final Class<?> rawType, final String typeName, final String name) {
+        final ClassKeys classKeys = CLASS_KEYS.get(rawType);
+
+        return name == null && typeName.equals(classKeys.key.typeName) ? classKeys.key : classKeys.get(typeName, name);
+    }
+
+    private static Class<?> getRawType(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() instanceof Class) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the canonical name of the given type, which must match the name
+     * the annotation processor gives the same type at compile time.
+     */
+    private static String getTypeName(final Type type) {
+        if (type instanceof Class) {
+            final Class<?> typeClass = (Class<?>) type;
+
+            return typeClass.isArray() ? getTypeName(typeClass.getComponentType()) + "[]" : typeClass.getName();
+        }
+
+        if (type instanceof GenericArrayType) {
+            final String componentName = getTypeName(((GenericArrayType) type).getGenericComponentType());
+
+            return componentName != null ? componentName + "[]" : null;
+        }
+
+        if (type instanceof WildcardType) {
+            final WildcardType wildcardType = (WildcardType) type;
+
+            if (wildcardType.getLowerBounds().length > 0) {
+                final String boundName = getTypeName(wildcardType.getLowerBounds()[0]);
+
+                return boundName != null ? "? super " + boundName : null;
+            }
+
+            if (wildcardType.getUpperBounds()[0] == Object.class) {
+                return "?";
+            }
+
+            final String boundName = getTypeName(wildcardType.getUpperBounds()[0]);
+
+            return boundName != null ? "? extends " + boundName : null;
+        }
+
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+
+        final Class<?> rawType = getRawType(type);
+
+        if (rawType == null) {
+            return null;
+        }
+
+        final StringBuilder typeName = new StringBuilder(rawType.getName()).append('<');
+        boolean wildcards = true;
+
+        for (final Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+            final String typeArgumentName = getTypeName(typeArgument);
+
+            if (typeArgumentName == null) {
+                return null;
+            }
+
+            typeName.append(typeName.charAt(typeName.length() - 1) == '<' ? "" : ",").append(typeArgumentName);
+            wildcards &= "?".equals(typeArgumentName);
+        }
+
+        // A type with only unbounded wildcards is any type of its class.
+        return wildcards ? rawType.getName() : typeName.append('>').toString();
+    }
+
+    /**
+     * The keys of a service class, the key of the class itself and the keys
+     * of its type arguments and names.
+     */
+    private static final class ClassKeys {
+
+        private final Class<?> rawType;
+
+        private final ServiceKey<?> key;
+
+        private final ConcurrentMap<String, ServiceKey<?>> keys;
+
+        private ClassKeys(final Class<?> rawType) {
+            this.rawType = rawType;
+            this.key = new ServiceKey<Object>(rawType, getTypeName(rawType), null);
+            this.keys = new ConcurrentHashMap<String, ServiceKey<?>>();
+        }
+
+        private ServiceKey<?> get(final String typeName, final String name) {
+            // Type names never contain an @, so a name can not be mistaken for
+            // part of the type name.
+            return this.keys.computeIfAbsent(name != null ? typeName + "@" + name : typeName, k -> new ServiceKey<Object>(this.rawType, typeName, name));
+        }
+    }
+
+    /**
+     * The ids of the keys one framework resolves providers of, dense from
+     * zero, so that the arrays the framework indexes by them are only as long
+     * as the number of services it has provided. Ids are never reused, so
+     * they are bounded by the number of distinct services the framework has
+     * provided since it was created.
+     */
+    static final class Ids {
+
+        private final ConcurrentMap<ServiceKey<?>, Id> ids;
+
+        Ids() {
+            this.ids = new ConcurrentHashMap<ServiceKey<?>, Id>();
+        }
+
+        /**
+         * Returns the id of the given key, or -1 if it has none.
+         */
+        int get(final ServiceKey<?> service) {
+            final ServiceKey<?> key = service.interned;
+            final Id id = key.id;
+
+            // Keys are mostly looked up in a single framework, which then
+            // finds the id on the key without hashing it.
+            if (id != null && id.ids == this) {
+                return id.value;
+            }
+
+            final Id registeredId = this.ids.get(key);
+
+            if (registeredId == null) {
+                return -1;
+            }
+
+            key.id = registeredId;
+
+            return registeredId.value;
+        }
+
+        /**
+         * Returns the id of the given key, giving it the next id if it has
+         * none. Only called by one thread at a time.
+         */
+        int register(final ServiceKey<?> service) {
+            final ServiceKey<?> key = service.interned;
+            Id id = this.ids.get(key);
+
+            if (id == null) {
+                id = new Id(this, this.ids.size());
+
+                this.ids.put(key, id);
+            }
+
+            return id.value;
+        }
+    }
+
+    /**
+     * An id of a key, and the framework ids it belongs to.
+     */
+    private static final class Id {
+
+        private final Ids ids;
+
+        private final int value;
+
+        private Id(final Ids ids, final int value) {
+            this.ids = ids;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.inkycode.nexus;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ *
+ * A stand-in for a service which obtains the service provider from the
+ * framework on its first method call, or on every method call if the provider
+ * is scoped.
+ *
+ */
+class ServiceProxy<T> implements InvocationHandler {
+
+    private final Framework framework;
+
+    private final ServiceKey<T> service;
+
+    private final boolean cached;
+
+    private volatile T target;
+
+    private ServiceProxy(final Framework framework, final ServiceKey<T> service, final boolean cached) {
+        this.framework = framework;
+        this.service = service;
+        this.cached = cached;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        T target = this.target;
+
+        if (target == null) {
+            target = this.framework.getService(this.service);
+
+            if (target == null) {
+                throw new IllegalStateException("No provider for service " + this.service);
+            }
+
+            if (this.cached) {
+                this.target = target;
+            }
+        }
+
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Generates a proxy for the given service.
+     *
+     * @param framework
+     *            the framework to obtain the service provider from.
+     * @param service
+     *            the key of the service, whose class is an interface.
+     * @param cached
+     *            true to keep the first provider obtained, false to obtain the
+     *            provider on every method call.
+     * @param <T>
+     *            the type of service.
+     * @return a proxy for the given service.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T newInstance(final Framework framework, final ServiceKey<T> service, final boolean cached) {
+        return (T) Proxy.newProxyInstance(service.getRawType().getClassLoader(), new Class<?>[] { service.getRawType() }, new ServiceProxy<T>(framework, service, cached));
+    }
+}
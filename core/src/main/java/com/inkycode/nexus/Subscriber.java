@@ -0,0 +1,43 @@
+package com.inkycode.nexus;
+
+/**
+ *
+ * A subscriber generated at compile time for a service provider, which passes
+ * events to the providers methods annotated with
+ * {@link com.inkycode.nexus.annotations.Subscribe} directly rather than
+ * through reflection.
+ *
+ * @param <T>
+ *            the type of service provider.
+ */
+public interface Subscriber<T> {
+
+    /**
+     * The suffix appended to the binary name of a service provider to obtain the
+     * name of its generated subscriber.
+     */
+    String SUFFIX = "$$Subscriber";
+
+    /**
+     * Returns the event types of the providers subscribed methods.
+     *
+     * @return the event types, indexed as the methods are by
+     *         {@link #dispatch(Object, int, Object)}.
+     */
+    Class<?>[] getEventTypes();
+
+    /**
+     * Passes an event to a subscribed method of the given service provider
+     * instance.
+     *
+     * @param instance
+     *            the service provider instance.
+     * @param index
+     *            the index of the method.
+     * @param event
+     *            the event, an instance of the methods event type.
+     * @throws Throwable
+     *             if the method failed.
+     */
+    void dispatch(T instance, int index, Object event) throws Throwable;
+}
@@ -0,0 +1,24 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ *
+ * Annotate a method of a service provider so that nexus will call it once the
+ * provider is constructed and injected, and the providers it depends on are
+ * activated.
+ *
+ * The method must take no parameters. It may return a
+ * {@link java.util.concurrent.CompletionStage}, in which case the provider is
+ * only considered activated once the stage completes, which lets slow
+ * warm-ups of different providers overlap.
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Activate {
+}
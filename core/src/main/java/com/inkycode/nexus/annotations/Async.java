@@ -0,0 +1,27 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ *
+ * Annotate a service interface method so that nexus will call it on the
+ * services executor rather than on the callers thread. The method must return
+ * a {@link java.util.concurrent.CompletableFuture} or
+ * {@link java.util.concurrent.CompletionStage}, which is completed once the
+ * future returned by the service provider completes.
+ *
+ * Services obtained from the framework are then wrapped in an implementation
+ * generated for the interface which declares the method. Service interfaces
+ * which only inherit the method are implemented along with each of their
+ * providers instead. Other methods of the service are still called on the
+ * callers thread.
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Async {
+}
@@ -0,0 +1,49 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Annotate a service interface method so that nexus will cache its results by
+ * its arguments, and only call the service provider for arguments which are
+ * not cached. Arguments are compared with {@code equals}, or by their
+ * elements for arrays.
+ *
+ * Services obtained from the framework are then wrapped in an implementation
+ * generated for the interface which declares the method. Service interfaces
+ * which only inherit the method are implemented along with each of their
+ * providers instead. Each provider instance has its own caches, which evict
+ * the least recently used result once full, so thread and request scoped
+ * providers cache per thread and per request, and prototypes only per
+ * instance.
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Cached {
+    /**
+     * The maximum number of results to cache.
+     *
+     * @return the maximum size.
+     */
+    int maximumSize() default 1024;
+
+    /**
+     * The time after which a cached result expires, in the given unit.
+     *
+     * @return the expiry time, or 0 if results never expire.
+     */
+    long expireAfterWrite() default 0;
+
+    /**
+     * The unit of the expiry time.
+     *
+     * @return the time unit.
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
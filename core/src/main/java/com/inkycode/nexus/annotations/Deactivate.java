@@ -0,0 +1,23 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ *
+ * Annotate a method of a service provider so that nexus will call it when the
+ * framework is stopped, or the provider is unregistered, once the providers
+ * which depend on it are deactivated.
+ *
+ * The method must take no parameters. It may return a
+ * {@link java.util.concurrent.CompletionStage}, in which case the provider is
+ * only considered deactivated once the stage completes.
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Deactivate {
+}
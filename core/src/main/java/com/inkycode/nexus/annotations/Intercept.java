@@ -0,0 +1,33 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import com.inkycode.nexus.Interceptor;
+
+/**
+ *
+ * Annotate a service interface so that nexus will generate an implementation
+ * which passes every method call through the given interceptors before
+ * calling the service provider.
+ *
+ * Services obtained from the framework are then wrapped in the generated
+ * implementation. Services whose interface is not annotated are obtained
+ * unwrapped.
+ *
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface Intercept {
+    /**
+     * The interceptors, in the order they are called. An interceptor is
+     * obtained from the framework if it is provided as a service, otherwise it
+     * is constructed through its no argument constructor.
+     *
+     * @return the interceptors.
+     */
+    Class<? extends Interceptor>[] value();
+}
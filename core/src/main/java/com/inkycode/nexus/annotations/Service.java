@@ -7,6 +7,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
 import com.inkycode.nexus.Auto;
+import com.inkycode.nexus.Scope;
 
 /**
  *
@@ -20,9 +21,12 @@ public @interface Service {
     /**
      * The service interface for which the annotated class is a provider of.
      *
-     * If left as Auto then the direct implements interface is used, if
-     * possible. If no direct implements interface is provided then scan super
-     * classes until one can be found.
+     * If left as Auto then every directly implemented interface is provided,
+     * sharing one instance of the provider. If no interface is directly
+     * implemented then those its super class directly implements are provided
+     * instead. Interfaces in the {@code java} and {@code javax} packages are
+     * left out, unless they are all that is implemented, in which case only
+     * the first is provided.
      *
      * @return the service interface
      */
@@ -51,4 +55,13 @@ public @interface Service {
      * @return the priority.
      */
     int priority() default 0;
+
+    /**
+     * The scope in which instances of the service provider are shared.
+     *
+     * By default a single instance is shared by every caller.
+     *
+     * @return the scope.
+     */
+    Scope scope() default Scope.SINGLETON;
 }
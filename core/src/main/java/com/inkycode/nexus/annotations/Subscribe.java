@@ -0,0 +1,24 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ *
+ * Annotate a method of a service provider so that nexus will call it with the
+ * events published on the frameworks {@link com.inkycode.nexus.EventBus}
+ * which are instances of its parameter type.
+ *
+ * The method must take a single parameter of a reference type, and must not
+ * be private or static. Events are passed to it by a subscriber generated for
+ * the provider, without reflection. Only singleton providers are subscribed,
+ * from when they are activated until they are deactivated.
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Subscribe {
+}
@@ -0,0 +1,22 @@
+package com.inkycode.nexus.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ *
+ * Annotate a method of a factory so that nexus will notify it when a service
+ * provider bound to the factory is unregistered.
+ *
+ * The method must take a single parameter, in the same way as the factories
+ * bind methods annotated with {@link javax.inject.Inject}: either a service
+ * provider, or a collection of the providers unbound at once.
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Unbind {
+}
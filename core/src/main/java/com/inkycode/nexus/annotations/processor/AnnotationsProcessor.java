@@ -2,24 +2,45 @@ package com.inkycode.nexus.annotations.processor;
 
 import static javax.lang.model.SourceVersion.RELEASE_8;
 
-import java.util.Collections;
-
+import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedSourceVersion;
 
 import com.google.auto.common.BasicAnnotationProcessor;
+import com.google.common.collect.ImmutableList;
+import com.inkycode.nexus.annotations.processor.tasks.AsyncTask;
+import com.inkycode.nexus.annotations.processor.tasks.CacheTask;
+import com.inkycode.nexus.annotations.processor.tasks.InterceptTask;
 import com.inkycode.nexus.annotations.processor.tasks.ServiceTask;
 
 /**
  *
- * Executed at compile time and performs the service task.
+ * Executed at compile time and performs the service, intercept, async and
+ * cache tasks.
+ *
+ * Registered with Gradle as an aggregating incremental processor, so that
+ * changing a service provider only recompiles what changed while the services
+ * descriptor is still generated from every service provider.
  *
  */
 @SupportedSourceVersion(RELEASE_8)
 public class AnnotationsProcessor extends BasicAnnotationProcessor {
 
+    private ServiceTask serviceTask;
+
     @Override
     protected Iterable<? extends ProcessingStep> initSteps() {
-        return Collections.singleton(new ServiceTask(this.processingEnv));
+        this.serviceTask = new ServiceTask(this.processingEnv);
+
+        return ImmutableList.of(this.serviceTask, new InterceptTask(this.processingEnv), new AsyncTask(this.processingEnv), new CacheTask(this.processingEnv));
+    }
+
+    @Override
+    protected void postRound(final RoundEnvironment roundEnv) {
+        // Services may be found in any round, so the descriptor is only
+        // written once every round has been processed.
+        if (roundEnv.processingOver()) {
+            this.serviceTask.writeServices();
+        }
     }
 
 }
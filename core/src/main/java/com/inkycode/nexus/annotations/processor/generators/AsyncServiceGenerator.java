@@ -0,0 +1,111 @@
+package com.inkycode.nexus.annotations.processor.generators;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileObject;
+
+import com.inkycode.nexus.AsyncDispatcher;
+import com.inkycode.nexus.annotations.Async;
+
+/**
+ *
+ * Generates an implementation of a service interface with asynchronous methods
+ * which calls those methods on an executor, and every other method directly on
+ * the service provider.
+ *
+ */
+public class AsyncServiceGenerator extends ServiceInterfaceGenerator {
+
+    /**
+     * Generates a new asynchronous service generator with the given processing
+     * environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public AsyncServiceGenerator(final ProcessingEnvironment processingEnv) {
+        super(processingEnv, AsyncDispatcher.SUFFIX);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(final TypeElement service, final String packageName, final String implementationName, final Element originatingElement) throws IOException {
+        final List<ExecutableElement> methods = this.getMethods(service);
+
+        final String serviceName = this.getTypeName(service.asType());
+
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? implementationName : packageName + "." + implementationName, originatingElement);
+
+        try (PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ";");
+                writer.println();
+            }
+            writer.println("/**");
+            writer.println(" * Asynchronous implementation of {@link " + service.getQualifiedName() + "}, generated by nexus.");
+            writer.println(" */");
+            writer.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            writer.println("public final class " + implementationName + " implements " + serviceName + " {");
+            writer.println();
+            writer.println("    private final " + serviceName + " target;");
+            writer.println();
+            writer.println("    private final java.util.concurrent.Executor executor;");
+            writer.println();
+            writer.println("    public " + implementationName + "(final Object target, final java.util.concurrent.Executor executor) {");
+            writer.println("        this.target = (" + serviceName + ") target;");
+            writer.println("        this.executor = executor;");
+            writer.println("    }");
+
+            for (final ExecutableElement method : methods) {
+                writer.println();
+                this.writeMethod(writer, service, method);
+            }
+
+            writer.println("}");
+        }
+    }
+
+    private void writeMethod(final PrintWriter writer, final TypeElement service, final ExecutableElement method) {
+        final ExecutableType methodType = this.getMethodType(service, method);
+        final List<? extends TypeMirror> parameters = methodType.getParameterTypes();
+        final TypeMirror returnType = methodType.getReturnType();
+        final boolean returnsVoid = returnType.getKind() == TypeKind.VOID;
+        final boolean async = method.getAnnotation(Async.class) != null;
+
+        final StringBuilder declaration = new StringBuilder();
+        final StringBuilder arguments = new StringBuilder();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            declaration.append(i > 0 ? ", " : "").append("final ").append(this.getTypeName(parameters.get(i))).append(" p").append(i);
+            arguments.append(i > 0 ? ", " : "").append("p").append(i);
+        }
+
+        // Asynchronous methods complete their future exceptionally rather
+        // than throw, so only methods called directly declare exceptions.
+        final List<String> thrownTypes = async ? Collections.<String> emptyList() : this.getThrownTypes(methodType);
+        final String providerCall = "this.target." + method.getSimpleName() + "(" + arguments + ")";
+
+        writer.println("    @Override");
+        writer.println("    public " + (returnsVoid ? "void" : this.getTypeName(returnType)) + " " + method.getSimpleName() + "(" + declaration + ")" + (thrownTypes.isEmpty() ? "" : " throws " + String.join(", ", thrownTypes)) + " {");
+
+        if (async) {
+            writer.println("        return " + AsyncDispatcher.class.getName() + ".dispatch(this.executor, () -> " + providerCall + ");");
+        } else {
+            writer.println("        " + (returnsVoid ? "" : "return ") + providerCall + ";");
+        }
+
+        writer.println("    }");
+    }
+}
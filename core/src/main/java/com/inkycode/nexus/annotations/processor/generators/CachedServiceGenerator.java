@@ -0,0 +1,157 @@
+package com.inkycode.nexus.annotations.processor.generators;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileObject;
+
+import com.inkycode.nexus.CacheStats;
+import com.inkycode.nexus.MethodCache;
+import com.inkycode.nexus.annotations.Cached;
+
+/**
+ *
+ * Generates an implementation of a service interface with cached methods which
+ * answers calls of those methods from a cache of its own where it can, and
+ * calls every other method directly on the service provider.
+ *
+ * The cache key of each call is built from its arguments by generated code,
+ * so a cached call involves no reflection.
+ *
+ */
+public class CachedServiceGenerator extends ServiceInterfaceGenerator {
+
+    /**
+     * Generates a new cached service generator with the given processing
+     * environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public CachedServiceGenerator(final ProcessingEnvironment processingEnv) {
+        super(processingEnv, MethodCache.SUFFIX);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(final TypeElement service, final String packageName, final String implementationName, final Element originatingElement) throws IOException {
+        final List<ExecutableElement> methods = this.getMethods(service);
+
+        final String serviceName = this.getTypeName(service.asType());
+        final String cacheName = MethodCache.class.getName();
+
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? implementationName : packageName + "." + implementationName, originatingElement);
+
+        try (PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ";");
+                writer.println();
+            }
+            writer.println("/**");
+            writer.println(" * Cached implementation of {@link " + service.getQualifiedName() + "}, generated by nexus.");
+            writer.println(" */");
+            writer.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            writer.println("public final class " + implementationName + " implements " + serviceName + " {");
+            writer.println();
+            writer.println("    private final " + serviceName + " target;");
+            writer.println();
+
+            for (int i = 0; i < methods.size(); i++) {
+                if (methods.get(i).getAnnotation(Cached.class) != null) {
+                    writer.println("    private final " + cacheName + " cache" + i + ";");
+                    writer.println();
+                }
+            }
+
+            writer.println("    public " + implementationName + "(final Object target, final java.util.function.Function<String, " + CacheStats.class.getName() + "> cacheStats) {");
+            writer.println("        this.target = (" + serviceName + ") target;");
+
+            for (int i = 0; i < methods.size(); i++) {
+                final Cached cached = methods.get(i).getAnnotation(Cached.class);
+
+                if (cached != null) {
+                    final String methodName = this.getMethodName(service, methods.get(i));
+
+                    writer.println("        this.cache" + i + " = new " + cacheName + "(" + cached.maximumSize() + ", " + cached.unit().toNanos(cached.expireAfterWrite()) + "L, cacheStats.apply(\"" + methodName + "\"));");
+                }
+            }
+
+            writer.println("    }");
+
+            for (int i = 0; i < methods.size(); i++) {
+                writer.println();
+                this.writeMethod(writer, service, methods.get(i), i);
+            }
+
+            writer.println("}");
+        }
+    }
+
+    private void writeMethod(final PrintWriter writer, final TypeElement service, final ExecutableElement method, final int index) {
+        final ExecutableType methodType = this.getMethodType(service, method);
+        final List<? extends TypeMirror> parameters = methodType.getParameterTypes();
+        final TypeMirror returnType = methodType.getReturnType();
+        final boolean returnsVoid = returnType.getKind() == TypeKind.VOID;
+        final String returnTypeName = returnsVoid ? "void" : this.getTypeName(returnType);
+
+        final StringBuilder declaration = new StringBuilder();
+        final StringBuilder arguments = new StringBuilder();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            declaration.append(i > 0 ? ", " : "").append("final ").append(this.getTypeName(parameters.get(i))).append(" p").append(i);
+            arguments.append(i > 0 ? ", " : "").append("p").append(i);
+        }
+
+        final List<String> thrownTypes = this.getThrownTypes(methodType);
+        final String providerCall = "this.target." + method.getSimpleName() + "(" + arguments + ")";
+
+        writer.println("    @Override");
+        writer.println("    public " + returnTypeName + " " + method.getSimpleName() + "(" + declaration + ")" + (thrownTypes.isEmpty() ? "" : " throws " + String.join(", ", thrownTypes)) + " {");
+
+        if (method.getAnnotation(Cached.class) == null) {
+            writer.println("        " + (returnsVoid ? "" : "return ") + providerCall + ";");
+            writer.println("    }");
+
+            return;
+        }
+
+        // A single argument is cast, so that an array is not taken as the
+        // arguments themselves.
+        final String key = parameters.size() == 1 ? "(Object) p0" : arguments.toString();
+
+        writer.println("        final Object key = " + MethodCache.class.getName() + ".key(" + key + ");");
+        writer.println("        final Object cachedResult = this.cache" + index + ".get(key);");
+        writer.println();
+        writer.println("        if (cachedResult != " + MethodCache.class.getName() + ".MISSING) {");
+        writer.println("            return (" + returnTypeName + ") cachedResult;");
+        writer.println("        }");
+        writer.println();
+        writer.println("        final " + returnTypeName + " result = " + providerCall + ";");
+        writer.println();
+        writer.println("        this.cache" + index + ".put(key, result);");
+        writer.println();
+        writer.println("        return result;");
+        writer.println("    }");
+    }
+
+    private String getMethodName(final TypeElement service, final ExecutableElement method) {
+        final StringBuilder methodName = new StringBuilder(service.getQualifiedName()).append('.').append(method.getSimpleName()).append('(');
+        final List<? extends TypeMirror> parameters = this.getMethodType(service, method).getParameterTypes();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            methodName.append(i > 0 ? "," : "").append(this.getTypeName(parameters.get(i)));
+        }
+
+        return methodName.append(')').toString();
+    }
+}
@@ -0,0 +1,235 @@
+package com.inkycode.nexus.annotations.processor.generators;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.NOTE;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.JavaFileObject;
+
+import com.inkycode.nexus.Framework;
+import com.inkycode.nexus.Injector;
+import com.inkycode.nexus.ServiceKey;
+import com.inkycode.nexus.descriptors.ServiceDescriptor;
+
+/**
+ *
+ * Generates an injector for a service provider which assigns the providers
+ * injected fields directly.
+ *
+ * An injector is only generated if every injected field of the provider, and
+ * of its super classes, can be assigned from the providers package. Otherwise
+ * the framework falls back to reflective injection at runtime.
+ *
+ * Fields of generic or named services are injected through service keys
+ * created once, from the type names captured at compile time.
+ *
+ */
+public class InjectorGenerator {
+
+    private final ProcessingEnvironment processingEnv;
+
+    /**
+     * Generates a new injector generator with the given processing environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public InjectorGenerator(final ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+    }
+
+    /**
+     * Generates an injector for the given service provider.
+     *
+     * @param provider
+     *            the service provider to generate an injector for.
+     * @return true if an injector was generated, false otherwise.
+     * @throws IOException
+     *             if the injector source file could not be written.
+     */
+    public boolean generate(final TypeElement provider) throws IOException {
+        final List<VariableElement> fields = this.getInjectedFields(provider);
+
+        if (fields == null) {
+            return false;
+        }
+
+        final PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(provider);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = this.processingEnv.getElementUtils().getBinaryName(provider).toString();
+        final String injectorName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + Injector.SUFFIX;
+        final String providerName = this.getTypeName(provider.asType());
+
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(binaryName + Injector.SUFFIX, provider);
+
+        try (PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ";");
+                writer.println();
+            }
+            writer.println("/**");
+            writer.println(" * Injector for {@link " + provider.getQualifiedName() + "}, generated by nexus.");
+            writer.println(" */");
+            writer.println("public final class " + injectorName + " implements " + Injector.class.getName() + "<" + providerName + "> {");
+            writer.println();
+
+            final String[] keys = new String[fields.size()];
+
+            for (int i = 0; i < fields.size(); i++) {
+                keys[i] = this.getServiceKey(fields.get(i));
+
+                if (keys[i] != null) {
+                    writer.println("    private static final " + ServiceKey.class.getName() + "<?> KEY_" + i + " = " + keys[i] + ";");
+                    writer.println();
+                }
+            }
+
+            writer.println("    @Override");
+            writer.println("    @SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            writer.println("    public void inject(final " + Framework.class.getName() + " framework, final " + providerName + " instance) {");
+
+            for (int i = 0; i < fields.size(); i++) {
+                final VariableElement field = fields.get(i);
+                final TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+                final String target = declaringType.equals(provider) ? "instance" : "((" + this.getTypeName(declaringType.asType()) + ") instance)";
+                final TypeMirror elementType = this.getProviderListElementType(field.asType());
+
+                if (keys[i] != null && elementType != null) {
+                    writer.println("        " + target + "." + field.getSimpleName() + " = (java.util.List) framework.getServices(KEY_" + i + ");");
+                } else if (keys[i] != null) {
+                    writer.println("        " + target + "." + field.getSimpleName() + " = (" + this.getTypeName(field.asType()) + ") framework.getDependency(KEY_" + i + ");");
+                } else if (elementType != null) {
+                    // Providers of a generic service are listed by its class,
+                    // which needs an unchecked conversion to the fields type.
+                    final String cast = ((DeclaredType) elementType).getTypeArguments().isEmpty() ? "" : "(java.util.List) ";
+
+                    writer.println("        " + target + "." + field.getSimpleName() + " = " + cast + "framework.getServices(" + this.getTypeName(elementType) + ".class);");
+                } else {
+                    writer.println("        " + target + "." + field.getSimpleName() + " = framework.getDependency(" + this.getTypeName(field.asType()) + ".class);");
+                }
+            }
+
+            writer.println("    }");
+            writer.println("}");
+        }
+
+        return true;
+    }
+
+    private List<VariableElement> getInjectedFields(final TypeElement provider) {
+        final List<VariableElement> fields = new ArrayList<VariableElement>();
+        final PackageElement providerPackage = this.processingEnv.getElementUtils().getPackageOf(provider);
+
+        TypeElement typeElement = provider;
+
+        while (typeElement != null) {
+            final boolean samePackage = this.processingEnv.getElementUtils().getPackageOf(typeElement).equals(providerPackage);
+
+            for (final VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+                if (field.getAnnotation(Inject.class) == null) {
+                    continue;
+                }
+
+                // Fields of super classes in other packages must be public, and
+                // so must the super class itself.
+                final boolean accessible = samePackage || (typeElement.getModifiers().contains(PUBLIC) && field.getModifiers().contains(PUBLIC));
+
+                if (field.getModifiers().contains(PRIVATE) || field.getModifiers().contains(FINAL) || field.getModifiers().contains(STATIC) || !accessible) {
+                    this.processingEnv.getMessager().printMessage(NOTE, "Injected field " + field.getSimpleName() + " is not accessible from " + provider.getQualifiedName() + ", falling back to reflective injection", field);
+
+                    return null;
+                }
+
+                fields.add(field);
+            }
+
+            final TypeMirror superclass = typeElement.getSuperclass();
+
+            typeElement = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+
+        return fields;
+    }
+
+    private String getServiceKey(final VariableElement field) {
+        final TypeMirror elementType = this.getProviderListElementType(field.asType());
+        final TypeMirror serviceType = elementType != null ? elementType : field.asType();
+        final String name = field.getAnnotation(Named.class) != null ? field.getAnnotation(Named.class).value() : null;
+
+        if (serviceType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        final String rawName = this.processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) serviceType).asElement()).toString();
+        final String typeName = ServiceDescriptor.getTypeName(this.processingEnv, serviceType);
+
+        // Services of a class alone, without a name, are injected by their
+        // class. Type arguments which can not identify a service, such as type
+        // variables, are left out as they are at runtime.
+        if (name == null && (typeName == null || typeName.equals(rawName))) {
+            return null;
+        }
+
+        return ServiceKey.class.getName() + ".of(" + this.getTypeName(serviceType) + ".class, " + (typeName != null ? toLiteral(typeName) : "null") + ", " + (name != null ? toLiteral(name) : "null") + ")";
+    }
+
+    private static String toLiteral(final String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+
+        for (final char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+
+            literal.append(c);
+        }
+
+        return literal.append('"').toString();
+    }
+
+    private TypeMirror getProviderListElementType(final TypeMirror typeMirror) {
+        if (typeMirror.getKind() != TypeKind.DECLARED || ((DeclaredType) typeMirror).getTypeArguments().size() != 1) {
+            return null;
+        }
+
+        final String typeName = this.getTypeName(typeMirror);
+
+        // Lists and iterables of a service are injected with all of its
+        // providers.
+        if (!List.class.getName().equals(typeName) && !Iterable.class.getName().equals(typeName)) {
+            return null;
+        }
+
+        final TypeMirror elementType = ((DeclaredType) typeMirror).getTypeArguments().get(0);
+
+        if (elementType.getKind() == TypeKind.WILDCARD) {
+            final TypeMirror extendsBound = ((WildcardType) elementType).getExtendsBound();
+
+            return extendsBound != null ? extendsBound : this.processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+        }
+
+        return elementType.getKind() == TypeKind.DECLARED ? elementType : null;
+    }
+
+    private String getTypeName(final TypeMirror typeMirror) {
+        return this.processingEnv.getTypeUtils().erasure(typeMirror).toString();
+    }
+}
@@ -0,0 +1,172 @@
+package com.inkycode.nexus.annotations.processor.generators;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileObject;
+
+import com.inkycode.nexus.Interceptor;
+import com.inkycode.nexus.Invocation;
+
+/**
+ *
+ * Generates an implementation of an intercepted service interface which passes
+ * every method call through the services interceptors before calling the
+ * service provider.
+ *
+ * Each method calls the provider through a lambda which captures nothing, so
+ * an intercepted call only allocates its invocation and arguments.
+ *
+ */
+public class InterceptedServiceGenerator extends ServiceInterfaceGenerator {
+
+    /**
+     * Generates a new intercepted service generator with the given processing
+     * environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public InterceptedServiceGenerator(final ProcessingEnvironment processingEnv) {
+        super(processingEnv, Interceptor.SUFFIX);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(final TypeElement service, final String packageName, final String implementationName, final Element originatingElement) throws IOException {
+        final List<ExecutableElement> methods = this.getMethods(service);
+
+        final String serviceName = this.getTypeName(service.asType());
+        final String interceptorsName = Interceptor.class.getName() + "[]";
+
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? implementationName : packageName + "." + implementationName, originatingElement);
+
+        try (PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ";");
+                writer.println();
+            }
+            writer.println("/**");
+            writer.println(" * Intercepted implementation of {@link " + service.getQualifiedName() + "}, generated by nexus.");
+            writer.println(" */");
+            writer.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            writer.println("public final class " + implementationName + " implements " + serviceName + " {");
+            writer.println();
+
+            for (int i = 0; i < methods.size(); i++) {
+                writer.println("    private static final java.lang.reflect.Method METHOD_" + i + ";");
+                writer.println();
+            }
+
+            writer.println("    private final " + serviceName + " target;");
+            writer.println();
+            writer.println("    private final " + interceptorsName + " interceptors;");
+            writer.println();
+
+            if (!methods.isEmpty()) {
+                writer.println("    static {");
+                writer.println("        try {");
+
+                for (int i = 0; i < methods.size(); i++) {
+                    final StringBuilder parameterTypes = new StringBuilder();
+
+                    for (final VariableElement parameter : methods.get(i).getParameters()) {
+                        parameterTypes.append(", ").append(this.getTypeName(parameter.asType())).append(".class");
+                    }
+
+                    writer.println("            METHOD_" + i + " = " + serviceName + ".class.getMethod(\"" + methods.get(i).getSimpleName() + "\"" + parameterTypes + ");");
+                }
+
+                writer.println("        } catch (final NoSuchMethodException e) {");
+                writer.println("            throw new NoSuchMethodError(e.getMessage());");
+                writer.println("        }");
+                writer.println("    }");
+                writer.println();
+            }
+
+            writer.println("    public " + implementationName + "(final Object target, final " + interceptorsName + " interceptors) {");
+            writer.println("        this.target = (" + serviceName + ") target;");
+            writer.println("        this.interceptors = interceptors;");
+            writer.println("    }");
+
+            for (int i = 0; i < methods.size(); i++) {
+                writer.println();
+                this.writeMethod(writer, service, methods.get(i), i);
+            }
+
+            writer.println("}");
+        }
+    }
+
+    private void writeMethod(final PrintWriter writer, final TypeElement service, final ExecutableElement method, final int index) {
+        final String serviceName = this.getTypeName(service.asType());
+        final ExecutableType methodType = this.getMethodType(service, method);
+        final List<? extends TypeMirror> parameters = methodType.getParameterTypes();
+        final TypeMirror returnType = methodType.getReturnType();
+        final boolean returnsVoid = returnType.getKind() == TypeKind.VOID;
+
+        final StringBuilder declaration = new StringBuilder();
+        final StringBuilder arguments = new StringBuilder();
+        final StringBuilder call = new StringBuilder();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            final String parameterType = this.getTypeName(parameters.get(i));
+
+            declaration.append(i > 0 ? ", " : "").append("final ").append(parameterType).append(" p").append(i);
+            arguments.append(i > 0 ? ", " : "").append("p").append(i);
+            call.append(i > 0 ? ", " : "").append("(").append(parameterType).append(") a[").append(i).append("]");
+        }
+
+        final List<String> thrownTypes = this.getThrownTypes(methodType);
+        final boolean throwsThrowable = thrownTypes.contains(Throwable.class.getName());
+
+        writer.println("    @Override");
+        writer.println("    public " + (returnsVoid ? "void" : this.getTypeName(returnType)) + " " + method.getSimpleName() + "(" + declaration + ")" + (thrownTypes.isEmpty() ? "" : " throws " + String.join(", ", thrownTypes)) + " {");
+
+        final String indent = throwsThrowable ? "        " : "            ";
+        final String invocation = "new " + Invocation.class.getName() + "(this.interceptors, this.target, METHOD_" + index + ", " + (parameters.isEmpty() ? "new Object[0]" : "new Object[] { " + arguments + " }") + ", (t, a) -> ";
+        final String providerCall = "((" + serviceName + ") t)." + method.getSimpleName() + "(" + call + ")";
+
+        if (!throwsThrowable) {
+            writer.println("        try {");
+        }
+
+        if (returnsVoid) {
+            writer.println(indent + invocation + "{");
+            writer.println(indent + "    " + providerCall + ";");
+            writer.println(indent + "    return null;");
+            writer.println(indent + "}).proceed();");
+        } else {
+            writer.println(indent + "return (" + this.getTypeName(returnType) + ") " + invocation + providerCall + ").proceed();");
+        }
+
+        // Exceptions the method may not throw are wrapped, as they would be
+        // by a proxy.
+        if (!throwsThrowable) {
+            writer.println("        } catch (final RuntimeException | Error e) {");
+            writer.println("            throw e;");
+
+            for (final String thrownType : thrownTypes) {
+                writer.println("        } catch (final " + thrownType + " e) {");
+                writer.println("            throw e;");
+            }
+
+            writer.println("        } catch (final Throwable e) {");
+            writer.println("            throw new java.lang.reflect.UndeclaredThrowableException(e);");
+            writer.println("        }");
+        }
+
+        writer.println("    }");
+    }
+}
@@ -0,0 +1,228 @@
+package com.inkycode.nexus.annotations.processor.generators;
+
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+
+/**
+ *
+ * Base of the generators which implement a service interface by wrapping a
+ * service provider, with the methods each implementation needs.
+ *
+ */
+abstract class ServiceInterfaceGenerator {
+
+    protected final ProcessingEnvironment processingEnv;
+
+    private final String suffix;
+
+    private final Set<String> implementations;
+
+    ServiceInterfaceGenerator(final ProcessingEnvironment processingEnv, final String suffix) {
+        this.processingEnv = processingEnv;
+        this.suffix = suffix;
+        this.implementations = new HashSet<String>();
+    }
+
+    /**
+     * Returns the methods of the given service interface to implement, each
+     * signature once.
+     */
+    List<ExecutableElement> getMethods(final TypeElement service) {
+        final List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        final Set<String> signatures = new HashSet<String>();
+
+        for (final ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(service))) {
+            if (method.getModifiers().contains(STATIC) || method.getModifiers().contains(PRIVATE) || method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+
+            // A method declared by several super interfaces is implemented
+            // once.
+            final StringBuilder signature = new StringBuilder(method.getSimpleName());
+
+            for (final TypeMirror parameterType : this.getMethodType(service, method).getParameterTypes()) {
+                signature.append(',').append(this.getTypeName(parameterType));
+            }
+
+            if (signatures.add(signature.toString())) {
+                methods.add(method);
+            }
+        }
+
+        return methods;
+    }
+
+    /**
+     * Generates the implementation of the given service interface, in the
+     * package of the interface.
+     *
+     * @param service
+     *            the service interface to generate an implementation for.
+     * @throws IOException
+     *             if the implementation source file could not be written.
+     */
+    public void generate(final TypeElement service) throws IOException {
+        final String packageName = this.getPackageName(service);
+        final String binaryName = this.processingEnv.getElementUtils().getBinaryName(service).toString();
+
+        this.generateOnce(service, packageName, binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + this.suffix, service);
+    }
+
+    /**
+     * Generates implementations of the interfaces of the given service provider
+     * which inherit methods with the given annotation without declaring any, in
+     * the package of the provider.
+     *
+     * Interfaces which declare such methods are implemented where they are
+     * compiled. Interfaces which only inherit them are implemented along with
+     * each of their providers instead, named after the provider, so that
+     * modules never generate classes into the packages of one another.
+     *
+     * @param provider
+     *            the service provider.
+     * @param annotation
+     *            the annotation of the methods.
+     * @param invalidServices
+     *            the interfaces whose annotated methods are invalid, whose sub
+     *            interfaces are not implemented.
+     * @throws IOException
+     *             if an implementation source file could not be written.
+     */
+    public void generateInherited(final TypeElement provider, final Class<? extends Annotation> annotation, final Set<? extends Element> invalidServices) throws IOException {
+        final String packageName = this.getPackageName(provider);
+        final String binaryName = this.processingEnv.getElementUtils().getBinaryName(provider).toString();
+        final Set<TypeElement> visited = new HashSet<TypeElement>();
+        final Deque<TypeMirror> types = new ArrayDeque<TypeMirror>();
+
+        types.push(provider.asType());
+
+        while (!types.isEmpty()) {
+            for (final TypeMirror supertype : this.processingEnv.getTypeUtils().directSupertypes(types.pop())) {
+                final TypeElement typeElement = (TypeElement) this.processingEnv.getTypeUtils().asElement(supertype);
+
+                if (typeElement == null || !visited.add(typeElement)) {
+                    continue;
+                }
+
+                types.push(supertype);
+
+                if (typeElement.getKind() == ElementKind.INTERFACE && this.inheritsMethods(typeElement, annotation, invalidServices)) {
+                    final String serviceName = this.processingEnv.getElementUtils().getBinaryName(typeElement).toString().replace('.', '_');
+
+                    this.generateOnce(typeElement, packageName, binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + this.suffix + "$" + serviceName, provider);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates the implementation of the given service interface with the
+     * given name and package.
+     */
+    abstract void generate(TypeElement service, String packageName, String implementationName, Element originatingElement) throws IOException;
+
+    private void generateOnce(final TypeElement service, final String packageName, final String implementationName, final Element originatingElement) throws IOException {
+        // An implementation is only generated once, however many rounds its
+        // service or provider is presented in.
+        if (this.implementations.add(packageName + "." + implementationName)) {
+            this.generate(service, packageName, implementationName, originatingElement);
+        }
+    }
+
+    private boolean inheritsMethods(final TypeElement service, final Class<? extends Annotation> annotation, final Set<? extends Element> invalidServices) {
+        for (final ExecutableElement method : ElementFilter.methodsIn(service.getEnclosedElements())) {
+            if (method.getAnnotation(annotation) != null) {
+                return false;
+            }
+        }
+
+        boolean inherits = false;
+
+        for (final ExecutableElement method : this.getMethods(service)) {
+            if (method.getAnnotation(annotation) != null) {
+                if (invalidServices.contains(method.getEnclosingElement())) {
+                    return false;
+                }
+
+                inherits = true;
+            }
+        }
+
+        return inherits;
+    }
+
+    private String getPackageName(final TypeElement typeElement) {
+        final PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(typeElement);
+
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    ExecutableType getMethodType(final TypeElement service, final ExecutableElement method) {
+        // Methods of generic super interfaces take the type arguments the
+        // service gives them. A generic service is implemented as a raw type,
+        // so its methods are erased.
+        final TypeMirror serviceType = service.getTypeParameters().isEmpty() ? service.asType() : this.processingEnv.getTypeUtils().erasure(service.asType());
+
+        return (ExecutableType) this.processingEnv.getTypeUtils().asMemberOf((DeclaredType) serviceType, method);
+    }
+
+    /**
+     * Returns the checked exceptions the given method declares, which are not
+     * sub classes of one another.
+     */
+    List<String> getThrownTypes(final ExecutableType method) {
+        final Types types = this.processingEnv.getTypeUtils();
+        final TypeMirror runtimeException = this.processingEnv.getElementUtils().getTypeElement(RuntimeException.class.getName()).asType();
+        final TypeMirror error = this.processingEnv.getElementUtils().getTypeElement(Error.class.getName()).asType();
+        final List<String> thrownTypes = new ArrayList<String>();
+
+        // Only checked exceptions which are not sub classes of one another are
+        // kept, as catching them in any other order would not compile.
+        for (final TypeMirror thrownType : method.getThrownTypes()) {
+            if (types.isSubtype(thrownType, runtimeException) || types.isSubtype(thrownType, error)) {
+                continue;
+            }
+
+            boolean subtype = false;
+
+            for (final TypeMirror otherType : method.getThrownTypes()) {
+                if (!types.isSameType(thrownType, otherType) && types.isSubtype(thrownType, otherType)) {
+                    subtype = true;
+                }
+            }
+
+            final String thrownTypeName = this.getTypeName(thrownType);
+
+            if (!subtype && !thrownTypes.contains(thrownTypeName)) {
+                thrownTypes.add(thrownTypeName);
+            }
+        }
+
+        return thrownTypes;
+    }
+
+    String getTypeName(final TypeMirror typeMirror) {
+        return this.processingEnv.getTypeUtils().erasure(typeMirror).toString();
+    }
+}
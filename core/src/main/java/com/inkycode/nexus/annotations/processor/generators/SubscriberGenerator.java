@@ -0,0 +1,179 @@
+package com.inkycode.nexus.annotations.processor.generators;
+
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.JavaFileObject;
+
+import com.inkycode.nexus.Subscriber;
+import com.inkycode.nexus.annotations.Subscribe;
+
+/**
+ *
+ * Generates a subscriber for a service provider which passes events to the
+ * providers subscribed methods directly.
+ *
+ * Subscribed methods are numbered in the order they are declared, from the
+ * provider up through its super classes, and the subscriber dispatches to
+ * them by number.
+ *
+ */
+public class SubscriberGenerator {
+
+    private final ProcessingEnvironment processingEnv;
+
+    /**
+     * Generates a new subscriber generator with the given processing
+     * environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public SubscriberGenerator(final ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+    }
+
+    /**
+     * Generates a subscriber for the given service provider, if it has
+     * subscribed methods.
+     *
+     * @param provider
+     *            the service provider to generate a subscriber for.
+     * @return true if a subscriber was generated, false otherwise.
+     * @throws IOException
+     *             if the subscriber source file could not be written.
+     */
+    public boolean generate(final TypeElement provider) throws IOException {
+        final List<ExecutableElement> methods = this.getSubscribedMethods(provider);
+
+        if (methods == null || methods.isEmpty()) {
+            return false;
+        }
+
+        final PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(provider);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = this.processingEnv.getElementUtils().getBinaryName(provider).toString();
+        final String subscriberName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + Subscriber.SUFFIX;
+        final String providerName = this.getTypeName(provider.asType());
+
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(binaryName + Subscriber.SUFFIX, provider);
+
+        try (PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ";");
+                writer.println();
+            }
+            writer.println("/**");
+            writer.println(" * Subscriber for {@link " + provider.getQualifiedName() + "}, generated by nexus.");
+            writer.println(" */");
+            writer.println("public final class " + subscriberName + " implements " + Subscriber.class.getName() + "<" + providerName + "> {");
+            writer.println();
+
+            final StringBuilder eventTypes = new StringBuilder();
+
+            for (int i = 0; i < methods.size(); i++) {
+                eventTypes.append(i > 0 ? ", " : "").append(this.getTypeName(methods.get(i).getParameters().get(0).asType())).append(".class");
+            }
+
+            writer.println("    private static final Class<?>[] EVENT_TYPES = { " + eventTypes + " };");
+            writer.println();
+            writer.println("    @Override");
+            writer.println("    public Class<?>[] getEventTypes() {");
+            writer.println("        return EVENT_TYPES.clone();");
+            writer.println("    }");
+            writer.println();
+            writer.println("    @Override");
+            writer.println("    public void dispatch(final " + providerName + " instance, final int index, final Object event) throws Throwable {");
+            writer.println("        switch (index) {");
+
+            for (int i = 0; i < methods.size(); i++) {
+                final ExecutableElement method = methods.get(i);
+                final TypeElement declaringType = (TypeElement) method.getEnclosingElement();
+                final String target = declaringType.equals(provider) ? "instance" : "((" + this.getTypeName(declaringType.asType()) + ") instance)";
+
+                writer.println("        case " + i + ":");
+                writer.println("            " + target + "." + method.getSimpleName() + "((" + this.getTypeName(method.getParameters().get(0).asType()) + ") event);");
+                writer.println("            break;");
+            }
+
+            writer.println("        default:");
+            writer.println("            throw new IllegalArgumentException(\"No subscribed method \" + index);");
+            writer.println("        }");
+            writer.println("    }");
+            writer.println("}");
+        }
+
+        return true;
+    }
+
+    private List<ExecutableElement> getSubscribedMethods(final TypeElement provider) {
+        final List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        final PackageElement providerPackage = this.processingEnv.getElementUtils().getPackageOf(provider);
+        boolean valid = true;
+
+        TypeElement typeElement = provider;
+
+        while (typeElement != null) {
+            final boolean samePackage = this.processingEnv.getElementUtils().getPackageOf(typeElement).equals(providerPackage);
+
+            for (final ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+                if (method.getAnnotation(Subscribe.class) == null || this.isOverridden(method, methods, provider)) {
+                    continue;
+                }
+
+                // Methods of super classes in other packages must be public,
+                // and so must the super class itself.
+                final boolean accessible = samePackage || (typeElement.getModifiers().contains(PUBLIC) && method.getModifiers().contains(PUBLIC));
+
+                if (method.getModifiers().contains(PRIVATE) || method.getModifiers().contains(STATIC) || !accessible) {
+                    this.processingEnv.getMessager().printMessage(ERROR, "Subscribed method " + method.getSimpleName() + " is not accessible from " + provider.getQualifiedName(), method);
+
+                    valid = false;
+                } else if (method.getParameters().size() != 1 || method.getParameters().get(0).asType().getKind() != TypeKind.DECLARED && method.getParameters().get(0).asType().getKind() != TypeKind.ARRAY) {
+                    this.processingEnv.getMessager().printMessage(ERROR, "Subscribed methods must take a single event of a reference type", method);
+
+                    valid = false;
+                } else {
+                    methods.add(method);
+                }
+            }
+
+            final TypeMirror superclass = typeElement.getSuperclass();
+
+            typeElement = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+
+        return valid ? methods : null;
+    }
+
+    private boolean isOverridden(final ExecutableElement method, final List<ExecutableElement> methods, final TypeElement provider) {
+        // A subscribed method overridden by the provider, or a subclass, is
+        // only called once, through its override.
+        for (final ExecutableElement overrider : methods) {
+            if (this.processingEnv.getElementUtils().overrides(overrider, method, provider)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private String getTypeName(final TypeMirror typeMirror) {
+        return this.processingEnv.getTypeUtils().erasure(typeMirror).toString();
+    }
+}
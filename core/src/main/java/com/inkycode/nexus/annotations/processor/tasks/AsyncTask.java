@@ -0,0 +1,127 @@
+package com.inkycode.nexus.annotations.processor.tasks;
+
+import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.lang.model.element.ElementKind.INTERFACE;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import com.google.auto.common.BasicAnnotationProcessor.ProcessingStep;
+import com.google.auto.common.MoreElements;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.inkycode.nexus.annotations.Async;
+import com.inkycode.nexus.annotations.Service;
+import com.inkycode.nexus.annotations.processor.generators.AsyncServiceGenerator;
+
+/**
+ *
+ * A task to generate asynchronous implementations of service interfaces with
+ * scanned asynchronous methods.
+ *
+ */
+public class AsyncTask implements ProcessingStep {
+
+    private final Set<TypeElement> invalidServices;
+
+    private final ProcessingEnvironment processingEnv;
+
+    private final AsyncServiceGenerator asyncServiceGenerator;
+
+    /**
+     * Generates a new async task with the given processing environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public AsyncTask(final ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+        this.asyncServiceGenerator = new AsyncServiceGenerator(processingEnv);
+        this.invalidServices = new HashSet<TypeElement>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<? extends Class<? extends Annotation>> annotations() {
+        return ImmutableSet.of(Async.class, Service.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Element> process(final SetMultimap<Class<? extends Annotation>, Element> elementsByAnnotation) {
+        final Set<TypeElement> typeElements = new LinkedHashSet<TypeElement>();
+
+        for (final Element element : elementsByAnnotation.get(Async.class)) {
+            final ExecutableElement method = MoreElements.asExecutable(element);
+            final TypeElement typeElement = MoreElements.asType(method.getEnclosingElement());
+
+            if (typeElement.getKind() != INTERFACE || method.getModifiers().contains(STATIC)) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Only methods of service interfaces can be asynchronous", method);
+
+                this.invalidServices.add(typeElement);
+            } else if (!this.isFuture(method.getReturnType())) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Asynchronous methods must return a " + CompletableFuture.class.getSimpleName() + " or " + CompletionStage.class.getSimpleName(), method);
+
+                this.invalidServices.add(typeElement);
+            }
+
+            typeElements.add(typeElement);
+        }
+
+        for (final TypeElement typeElement : typeElements) {
+            if (this.invalidServices.contains(typeElement)) {
+                continue;
+            }
+
+            try {
+                this.asyncServiceGenerator.generate(typeElement);
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Unable to generate asynchronous implementation: " + e.getMessage(), typeElement);
+            }
+        }
+
+        for (final Element element : elementsByAnnotation.get(Service.class)) {
+            if (element.getKind() != CLASS) {
+                continue;
+            }
+
+            try {
+                this.asyncServiceGenerator.generateInherited(MoreElements.asType(element), Async.class, this.invalidServices);
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Unable to generate asynchronous implementation: " + e.getMessage(), element);
+            }
+        }
+
+        return new HashSet<>();
+    }
+
+    private boolean isFuture(final TypeMirror typeMirror) {
+        if (typeMirror.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+
+        final String typeName = MoreElements.asType(((DeclaredType) typeMirror).asElement()).getQualifiedName().toString();
+
+        return CompletableFuture.class.getName().equals(typeName) || CompletionStage.class.getName().equals(typeName);
+    }
+
+}
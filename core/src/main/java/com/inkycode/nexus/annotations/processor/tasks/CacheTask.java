@@ -0,0 +1,118 @@
+package com.inkycode.nexus.annotations.processor.tasks;
+
+import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.lang.model.element.ElementKind.INTERFACE;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+
+import com.google.auto.common.BasicAnnotationProcessor.ProcessingStep;
+import com.google.auto.common.MoreElements;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.inkycode.nexus.annotations.Cached;
+import com.inkycode.nexus.annotations.Service;
+import com.inkycode.nexus.annotations.processor.generators.CachedServiceGenerator;
+
+/**
+ *
+ * A task to generate cached implementations of service interfaces with
+ * scanned cached methods.
+ *
+ */
+public class CacheTask implements ProcessingStep {
+
+    private final Set<TypeElement> invalidServices;
+
+    private final ProcessingEnvironment processingEnv;
+
+    private final CachedServiceGenerator cachedServiceGenerator;
+
+    /**
+     * Generates a new cache task with the given processing environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public CacheTask(final ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+        this.cachedServiceGenerator = new CachedServiceGenerator(processingEnv);
+        this.invalidServices = new HashSet<TypeElement>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<? extends Class<? extends Annotation>> annotations() {
+        return ImmutableSet.of(Cached.class, Service.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Element> process(final SetMultimap<Class<? extends Annotation>, Element> elementsByAnnotation) {
+        final Set<TypeElement> typeElements = new LinkedHashSet<TypeElement>();
+
+        for (final Element element : elementsByAnnotation.get(Cached.class)) {
+            final ExecutableElement method = MoreElements.asExecutable(element);
+            final TypeElement typeElement = MoreElements.asType(method.getEnclosingElement());
+            final Cached cached = method.getAnnotation(Cached.class);
+
+            if (typeElement.getKind() != INTERFACE || method.getModifiers().contains(STATIC)) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Only methods of service interfaces can be cached", method);
+
+                this.invalidServices.add(typeElement);
+            } else if (method.getReturnType().getKind() == TypeKind.VOID) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Cached methods must return a result", method);
+
+                this.invalidServices.add(typeElement);
+            } else if (cached.maximumSize() <= 0 || cached.expireAfterWrite() < 0) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Cached methods must have a positive maximum size and an expiry time of at least 0", method);
+
+                this.invalidServices.add(typeElement);
+            }
+
+            typeElements.add(typeElement);
+        }
+
+        for (final TypeElement typeElement : typeElements) {
+            if (this.invalidServices.contains(typeElement)) {
+                continue;
+            }
+
+            try {
+                this.cachedServiceGenerator.generate(typeElement);
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Unable to generate cached implementation: " + e.getMessage(), typeElement);
+            }
+        }
+
+        for (final Element element : elementsByAnnotation.get(Service.class)) {
+            if (element.getKind() != CLASS) {
+                continue;
+            }
+
+            try {
+                this.cachedServiceGenerator.generateInherited(MoreElements.asType(element), Cached.class, this.invalidServices);
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Unable to generate cached implementation: " + e.getMessage(), element);
+            }
+        }
+
+        return new HashSet<>();
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.inkycode.nexus.annotations.processor.tasks;
+
+import static javax.lang.model.element.ElementKind.INTERFACE;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import com.google.auto.common.BasicAnnotationProcessor.ProcessingStep;
+import com.google.auto.common.MoreElements;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.inkycode.nexus.annotations.Intercept;
+import com.inkycode.nexus.annotations.processor.generators.InterceptedServiceGenerator;
+
+/**
+ *
+ * A task to generate intercepted implementations of scanned service
+ * interfaces.
+ *
+ */
+public class InterceptTask implements ProcessingStep {
+
+    private final ProcessingEnvironment processingEnv;
+
+    private final InterceptedServiceGenerator interceptedServiceGenerator;
+
+    /**
+     * Generates a new intercept task with the given processing environment.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     */
+    public InterceptTask(final ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+        this.interceptedServiceGenerator = new InterceptedServiceGenerator(processingEnv);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<? extends Class<? extends Annotation>> annotations() {
+        return ImmutableSet.of(Intercept.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Element> process(final SetMultimap<Class<? extends Annotation>, Element> elementsByAnnotation) {
+        for (final Element element : elementsByAnnotation.get(Intercept.class)) {
+            final TypeElement typeElement = MoreElements.asType(element);
+
+            if (typeElement.getKind() != INTERFACE) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Only service interfaces can be intercepted", typeElement);
+
+                continue;
+            }
+
+            try {
+                this.interceptedServiceGenerator.generate(typeElement);
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(ERROR, "Unable to generate intercepted implementation: " + e.getMessage(), typeElement);
+            }
+        }
+
+        return new HashSet<>();
+    }
+
+}
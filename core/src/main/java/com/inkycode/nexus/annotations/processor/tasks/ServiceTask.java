@@ -2,6 +2,8 @@ package com.inkycode.nexus.annotations.processor.tasks;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.WARNING;
 import static javax.tools.StandardLocation.CLASS_OUTPUT;
 
 import java.io.IOException;
@@ -12,7 +14,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.ProcessingEnvironment;
@@ -26,19 +30,31 @@ import com.google.auto.common.MoreElements;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
 import com.inkycode.nexus.annotations.Service;
+import com.inkycode.nexus.annotations.processor.generators.InjectorGenerator;
+import com.inkycode.nexus.annotations.processor.generators.SubscriberGenerator;
 import com.inkycode.nexus.descriptors.ServiceDescriptor;
+import com.inkycode.nexus.descriptors.ServiceIndex;
 
 /**
  *
  * A task to generate a services descriptor file for scanned classes.
  *
+ * Service providers are collected across processing rounds, and the services
+ * descriptor is written once all rounds are processed.
+ *
  */
 public class ServiceTask implements ProcessingStep {
 
-    private List<ServiceDescriptor> services;
+    private final Map<String, ServiceDescriptor> services;
+
+    private final Map<String, TypeElement> providers;
 
     private final ProcessingEnvironment processingEnv;
 
+    private final InjectorGenerator injectorGenerator;
+
+    private final SubscriberGenerator subscriberGenerator;
+
     /**
      * Generates a new service task with the given processing environment.
      *
@@ -47,6 +63,10 @@ public class ServiceTask implements ProcessingStep {
      */
     public ServiceTask(final ProcessingEnvironment processingEnv) {
         this.processingEnv = processingEnv;
+        this.injectorGenerator = new InjectorGenerator(processingEnv);
+        this.subscriberGenerator = new SubscriberGenerator(processingEnv);
+        this.services = new TreeMap<String, ServiceDescriptor>();
+        this.providers = new TreeMap<String, TypeElement>();
     }
 
     /**
@@ -62,27 +82,69 @@ public class ServiceTask implements ProcessingStep {
      */
     @Override
     public Set<Element> process(final SetMultimap<Class<? extends Annotation>, Element> elementsByAnnotation) {
-        this.services = new ArrayList<ServiceDescriptor>();
-
         for (final Class<? extends Annotation> annotationClass : elementsByAnnotation.keySet()) {
             for (final Element element : elementsByAnnotation.get(annotationClass)) {
                 final TypeElement typeElement = MoreElements.asType(element);
 
-                if (typeElement.getKind() == CLASS) {
-                    final Service serviceAnnotation = Service.class.cast(typeElement.getAnnotation(annotationClass));
-
-                    if (serviceAnnotation != null) {
-                        final ServiceDescriptor serviceDescriptor = new ServiceDescriptor(this.processingEnv, serviceAnnotation, typeElement);
+                if (typeElement.getKind() == CLASS && typeElement.getAnnotation(Service.class) != null) {
+                    boolean valid = false;
 
+                    // A provider is described once for every service it
+                    // provides.
+                    for (final ServiceDescriptor serviceDescriptor : ServiceDescriptor.getServiceDescriptors(this.processingEnv, typeElement)) {
                         if (serviceDescriptor.isValid()) {
-                            this.services.add(serviceDescriptor);
+                            this.services.put(getServiceKey(serviceDescriptor), serviceDescriptor);
+
+                            valid = true;
                         }
                     }
+
+                    // Providers already seen in an earlier round have their
+                    // injector and subscriber.
+                    if (!valid || this.providers.put(typeElement.getQualifiedName().toString(), typeElement) != null) {
+                        continue;
+                    }
+
+                    try {
+                        this.injectorGenerator.generate(typeElement);
+                    } catch (final IOException e) {
+                        this.processingEnv.getMessager().printMessage(WARNING, "Unable to generate injector, falling back to reflective injection", typeElement);
+                    }
+
+                    try {
+                        this.subscriberGenerator.generate(typeElement);
+                    } catch (final IOException e) {
+                        this.processingEnv.getMessager().printMessage(ERROR, "Unable to generate subscriber: " + e.getMessage(), typeElement);
+                    }
                 }
             }
         }
 
-        Collections.sort(this.services, new Comparator<ServiceDescriptor>() {
+        return new HashSet<>();
+    }
+
+    private static String getServiceKey(final ServiceDescriptor serviceDescriptor) {
+        final String service = serviceDescriptor.getType() != null ? serviceDescriptor.getType() : serviceDescriptor.getService().getName();
+
+        return serviceDescriptor.getProvider().getName() + " " + service + (serviceDescriptor.getName() != null ? "@" + serviceDescriptor.getName() : "");
+    }
+
+    /**
+     * Writes the services descriptor and service index for every service
+     * provider processed so far.
+     *
+     * Providers are written in order of name, with factories last, so that
+     * the order in which they are registered at runtime does not depend on
+     * the order the compiler processed them in.
+     */
+    public void writeServices() {
+        if (this.services.isEmpty()) {
+            return;
+        }
+
+        final List<ServiceDescriptor> services = new ArrayList<ServiceDescriptor>(this.services.values());
+
+        Collections.sort(services, new Comparator<ServiceDescriptor>() {
 
             @Override
             public int compare(final ServiceDescriptor a, final ServiceDescriptor b) {
@@ -99,18 +161,26 @@ public class ServiceTask implements ProcessingStep {
 
         });
 
+        // Every provider contributes to the descriptor, which lets an
+        // incremental build know what to regenerate it from.
+        final TypeElement[] originatingElements = this.providers.values().toArray(new TypeElement[this.providers.size()]);
+
         final Filer filer = this.processingEnv.getFiler();
         try {
-            final FileObject servicesFileObject = filer.createResource(CLASS_OUTPUT, "", "META-INF/services.json");
+            final FileObject servicesFileObject = filer.createResource(CLASS_OUTPUT, "", "META-INF/services.json", originatingElements);
 
             try (OutputStream outputStream = servicesFileObject.openOutputStream()) {
-                new ObjectMapper().setSerializationInclusion(NON_NULL).writerWithDefaultPrettyPrinter().writeValue(outputStream, this.services);
+                new ObjectMapper().setSerializationInclusion(NON_NULL).writerWithDefaultPrettyPrinter().writeValue(outputStream, services);
             }
-        } catch (final IOException e) {
 
-        }
+            final FileObject indexFileObject = filer.createResource(CLASS_OUTPUT, "", ServiceIndex.RESOURCE, originatingElements);
 
-        return new HashSet<>();
+            try (OutputStream outputStream = indexFileObject.openOutputStream()) {
+                ServiceIndex.write(outputStream, services);
+            }
+        } catch (final IOException e) {
+            this.processingEnv.getMessager().printMessage(ERROR, "Unable to write services descriptor: " + e.getMessage());
+        }
     }
 
 }
@@ -8,6 +8,7 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 
@@ -33,6 +34,8 @@ public class AnnotationDescriptor {
                 value = getAnnotationClassValue(processingEnv, annotationMirror, valueKey, (Class<?>) valueDefault).toString();
             } else if (valueDefault.getClass() == Integer.class) {
                 value = getAnnotationIntegerValue(processingEnv, annotationMirror, valueKey, (int) valueDefault);
+            } else if (valueDefault instanceof Enum) {
+                value = getAnnotationEnumValue(annotationMirror, valueKey, (Enum<?>) valueDefault);
             }
 
             this.valueMap.put(valueKey, value);
@@ -73,4 +76,14 @@ public class AnnotationDescriptor {
 
         return defaultValue;
     }
+
+    private static String getAnnotationEnumValue(final AnnotationMirror annotationMirror, final String key, final Enum<?> defaultValue) {
+        final AnnotationValue annotationValue = getAnnotationValue(annotationMirror, key);
+
+        if (annotationValue != null) {
+            return ((VariableElement) annotationValue.getValue()).getSimpleName().toString();
+        }
+
+        return defaultValue.name();
+    }
 }
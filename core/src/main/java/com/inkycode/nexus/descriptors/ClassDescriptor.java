@@ -9,6 +9,10 @@ public class ClassDescriptor {
     public ClassDescriptor() {
     }
 
+    public ClassDescriptor(final String name) {
+        this.name = name;
+    }
+
     public ClassDescriptor(final TypeElement typeElement) {
         this.name = typeElement.getQualifiedName().toString();
     }
@@ -1,12 +1,31 @@
 package com.inkycode.nexus.descriptors;
 
+import static javax.tools.Diagnostic.Kind.WARNING;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Inject;
+import javax.inject.Named;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.inkycode.nexus.Auto;
+import com.inkycode.nexus.Scope;
 import com.inkycode.nexus.annotations.Service;
 
 /**
@@ -17,12 +36,22 @@ import com.inkycode.nexus.annotations.Service;
  */
 public class ServiceDescriptor {
 
+    private static final Class<?>[] PRIMITIVE_CLASSES = { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class };
+
     private ClassDescriptor service;
     private ClassDescriptor provider;
     private ClassDescriptor factory;
 
     private int priority;
 
+    private Scope scope = Scope.SINGLETON;
+
+    private ClassDescriptor[] parameters;
+
+    private String type;
+
+    private String name;
+
     /**
      * Default constructor.
      */
@@ -30,24 +59,96 @@ public class ServiceDescriptor {
     }
 
     /**
-     * Generates a service descriptor for the given service and provider.
+     * Generates a service descriptor from already known values.
+     *
+     * @param service
+     *            the service.
+     * @param provider
+     *            the service provider.
+     * @param factory
+     *            the factory service, or null if the provider is not a factory.
+     * @param priority
+     *            the service providers priority.
+     * @param scope
+     *            the scope of the service providers instances.
+     * @param parameters
+     *            the parameter types of the providers injected constructor, or
+     *            null if the provider is constructed without arguments.
+     */
+    public ServiceDescriptor(final ClassDescriptor service, final ClassDescriptor provider, final ClassDescriptor factory, final int priority, final Scope scope, final ClassDescriptor[] parameters) {
+        this(service, provider, factory, priority, scope, parameters, null, null);
+    }
+
+    /**
+     * Generates a service descriptor from already known values.
+     *
+     * @param service
+     *            the service.
+     * @param provider
+     *            the service provider.
+     * @param factory
+     *            the factory service, or null if the provider is not a factory.
+     * @param priority
+     *            the service providers priority.
+     * @param scope
+     *            the scope of the service providers instances.
+     * @param parameters
+     *            the parameter types of the providers injected constructor, or
+     *            null if the provider is constructed without arguments.
+     * @param type
+     *            the canonical name of the generic service type, or null if
+     *            the service is not generic.
+     * @param name
+     *            the name of the service, or null if the service is unnamed.
+     */
+    public ServiceDescriptor(final ClassDescriptor service, final ClassDescriptor provider, final ClassDescriptor factory, final int priority, final Scope scope, final ClassDescriptor[] parameters, final String type, final String name) {
+        this.service = service;
+        this.provider = provider;
+        this.factory = factory;
+        this.priority = priority;
+        this.scope = scope;
+        this.parameters = parameters;
+        this.type = type;
+        this.name = name;
+    }
+
+    /**
+     * Generates service descriptors for the given provider, one for each
+     * service it provides.
+     *
+     * A provider which does not name its service provides every interface it
+     * directly implements, or if it implements none every interface its super
+     * class directly implements. Interfaces of the platform, those in the
+     * {@code java} and {@code javax} packages such as {@code Serializable} or
+     * {@code Comparable}, are left out, unless the provider implements no
+     * other interface, in which case only the first of them is provided.
      *
      * @param processingEnv
      *            the processing environment.
-     * @param service
-     *            the service to generate a descriptor for.
      * @param provider
      *            the service provider.
+     * @return the service descriptors.
      */
-    public ServiceDescriptor(final ProcessingEnvironment processingEnv, final Service service, final TypeElement provider) {
+    public static List<ServiceDescriptor> getServiceDescriptors(final ProcessingEnvironment processingEnv, final TypeElement provider) {
+        final List<ServiceDescriptor> serviceDescriptors = new ArrayList<ServiceDescriptor>();
+
+        for (final TypeMirror serviceType : getServiceTypes(processingEnv, provider)) {
+            serviceDescriptors.add(new ServiceDescriptor(processingEnv, provider, serviceType));
+        }
+
+        return serviceDescriptors;
+    }
+
+    private ServiceDescriptor(final ProcessingEnvironment processingEnv, final TypeElement provider, final TypeMirror serviceType) {
         this.provider = new ClassDescriptor(provider);
 
         final AnnotationMirror serviceAnnotationMirror = getAnnotationMirror(provider, Service.class);
 
         if (serviceAnnotationMirror != null) {
-            final AnnotationDescriptor annotationDescriptor = new AnnotationDescriptor(processingEnv, serviceAnnotationMirror, new String[] { "value", "factory", "priority" }, new Object[] { Auto.class, Auto.class, 0 });
+            final AnnotationDescriptor annotationDescriptor = new AnnotationDescriptor(processingEnv, serviceAnnotationMirror, new String[] { "value", "factory", "priority", "scope" }, new Object[] { Auto.class, Auto.class, 0, Scope.SINGLETON });
 
             this.priority = annotationDescriptor.getValue("priority", Integer.class);
+            this.scope = Scope.valueOf(annotationDescriptor.getValue("scope", String.class));
 
             final String valueType = annotationDescriptor.getValue("value", String.class);
             final String factoryType = annotationDescriptor.getValue("factory", String.class);
@@ -55,28 +156,31 @@ public class ServiceDescriptor {
             final TypeElement valueTypeElement = processingEnv.getElementUtils().getTypeElement(valueType);
             final TypeElement factoryTypeElement = processingEnv.getElementUtils().getTypeElement(factoryType);
 
-            if (Auto.class.getName().equals(valueType)) {
-                if (provider.getInterfaces().size() > 0) {
-                    this.service = new ClassDescriptor(((TypeElement) processingEnv.getTypeUtils().asElement(provider.getInterfaces().get(0))));
-                } else {
-                    for (final TypeMirror superTypeTypeMirror : processingEnv.getTypeUtils().directSupertypes(provider.asType())) {
-                        final TypeElement superTypeTypeElement = (TypeElement) processingEnv.getTypeUtils().asElement(superTypeTypeMirror);
-                        if (superTypeTypeElement.getInterfaces().size() > 0) {
-                            this.service = new ClassDescriptor(((TypeElement) processingEnv.getTypeUtils().asElement(superTypeTypeElement.getInterfaces().get(0))));
-
-                            break;
-                        }
-                    }
+            if (serviceType != null) {
+                final String typeName = getTypeName(processingEnv, serviceType);
+
+                this.service = new ClassDescriptor((TypeElement) processingEnv.getTypeUtils().asElement(serviceType));
+
+                // Only generic services are described by their type, which
+                // is then the canonical name of the service type.
+                if (typeName != null && !typeName.equals(processingEnv.getElementUtils().getBinaryName((TypeElement) processingEnv.getTypeUtils().asElement(serviceType)).toString())) {
+                    this.type = typeName;
                 }
-            } else {
+            } else if (!Auto.class.getName().equals(valueType)) {
                 this.service = new ClassDescriptor(valueTypeElement);
             }
 
+            if (provider.getAnnotation(Named.class) != null) {
+                this.name = provider.getAnnotation(Named.class).value();
+            }
+
             if (Auto.class.getName().equals(factoryTypeElement.getQualifiedName().toString())) {
                 // Factory is not valid if value is auto
             } else {
                 this.factory = new ClassDescriptor(factoryTypeElement);
             }
+
+            this.parameters = getConstructorParameters(processingEnv, provider);
         }
     }
 
@@ -116,6 +220,43 @@ public class ServiceDescriptor {
         return this.priority;
     }
 
+    /**
+     * Returns the scope.
+     *
+     * @return the scope.
+     */
+    public Scope getScope() {
+        return this.scope;
+    }
+
+    /**
+     * Returns the canonical name of the generic service type.
+     *
+     * @return the type name, or null if the service is not generic.
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the name of the service.
+     *
+     * @return the name, or null if the service is unnamed.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the parameter types of the injected constructor.
+     *
+     * @return the parameter types, or null if the provider is constructed
+     *         without arguments.
+     */
+    public ClassDescriptor[] getParameters() {
+        return this.parameters;
+    }
+
     /**
      * Obtain the service class described.
      *
@@ -123,8 +264,19 @@ public class ServiceDescriptor {
      */
     @JsonIgnore
     public Class<?> getServiceClass() {
+        return this.getServiceClass(ServiceDescriptor.class.getClassLoader());
+    }
+
+    /**
+     * Obtain the service class described from the given class loader.
+     *
+     * @param classLoader
+     *            the class loader to load the class with.
+     * @return the service class, or null if the class was not found.
+     */
+    public Class<?> getServiceClass(final ClassLoader classLoader) {
         try {
-            return Class.forName(this.getService().getName());
+            return Class.forName(this.getService().getName(), true, classLoader);
         } catch (final ClassNotFoundException e) {
             return null;
         }
@@ -137,8 +289,19 @@ public class ServiceDescriptor {
      */
     @JsonIgnore
     public Class<?> getProviderClass() {
+        return this.getProviderClass(ServiceDescriptor.class.getClassLoader());
+    }
+
+    /**
+     * Obtain the provider class described from the given class loader.
+     *
+     * @param classLoader
+     *            the class loader to load the class with.
+     * @return the provider class, or null if the class was not found.
+     */
+    public Class<?> getProviderClass(final ClassLoader classLoader) {
         try {
-            return Class.forName(this.getProvider().getName());
+            return Class.forName(this.getProvider().getName(), true, classLoader);
         } catch (final ClassNotFoundException e) {
             return null;
         }
@@ -152,11 +315,65 @@ public class ServiceDescriptor {
      */
     @JsonIgnore
     public Class<?> getFactoryClass() {
+        return this.getFactoryClass(ServiceDescriptor.class.getClassLoader());
+    }
+
+    /**
+     * Obtain the factory class described from the given class loader.
+     *
+     * @param classLoader
+     *            the class loader to load the class with.
+     * @return the factory class, or null if no factory class was defined or the
+     *         class was not found.
+     */
+    public Class<?> getFactoryClass(final ClassLoader classLoader) {
+        try {
+            return this.getFactory() != null ? Class.forName(this.getFactory().getName(), true, classLoader) : null;
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Obtain the parameter classes of the injected constructor from the given
+     * class loader.
+     *
+     * Parameters are described by the names {@link Class#getName()} gives
+     * them, so primitive parameters by their keyword and array parameters by
+     * their descriptor.
+     *
+     * @param classLoader
+     *            the class loader to load the classes with.
+     * @return the parameter classes, or null if no injected constructor was
+     *         described or one of its parameter classes was not found.
+     */
+    public Class<?>[] getParameterClasses(final ClassLoader classLoader) {
+        if (this.getParameters() == null) {
+            return null;
+        }
+
+        final Class<?>[] parameterClasses = new Class<?>[this.getParameters().length];
+
         try {
-            return this.getFactory() != null ? Class.forName(this.getFactory().getName()) : null;
+            for (int i = 0; i < parameterClasses.length; i++) {
+                parameterClasses[i] = getClass(this.getParameters()[i].getName(), classLoader);
+            }
         } catch (final ClassNotFoundException e) {
             return null;
         }
+
+        return parameterClasses;
+    }
+
+    private static Class<?> getClass(final String className, final ClassLoader classLoader) throws ClassNotFoundException {
+        // Class.forName only loads classes and arrays, not primitive types.
+        for (final Class<?> primitiveClass : PRIMITIVE_CLASSES) {
+            if (primitiveClass.getName().equals(className)) {
+                return primitiveClass;
+            }
+        }
+
+        return Class.forName(className, false, classLoader);
     }
 
     /**
@@ -169,6 +386,233 @@ public class ServiceDescriptor {
         return (this.service != null && this.provider != null);
     }
 
+    /**
+     * Returns the canonical name of the given type, the binary name of its
+     * class followed by its type arguments, which the framework gives the same
+     * type at runtime.
+     *
+     * @param processingEnv
+     *            the processing environment.
+     * @param typeMirror
+     *            the type.
+     * @return the type name, or null if the type can not identify a service,
+     *         such as a type variable.
+     */
+    public static String getTypeName(final ProcessingEnvironment processingEnv, final TypeMirror typeMirror) {
+        if (typeMirror.getKind().isPrimitive()) {
+            return typeMirror.toString();
+        }
+
+        if (typeMirror.getKind() == TypeKind.ARRAY) {
+            final String componentName = getTypeName(processingEnv, ((ArrayType) typeMirror).getComponentType());
+
+            return componentName != null ? componentName + "[]" : null;
+        }
+
+        if (typeMirror.getKind() == TypeKind.WILDCARD) {
+            final WildcardType wildcardType = (WildcardType) typeMirror;
+
+            if (wildcardType.getSuperBound() != null) {
+                final String boundName = getTypeName(processingEnv, wildcardType.getSuperBound());
+
+                return boundName != null ? "? super " + boundName : null;
+            }
+
+            if (wildcardType.getExtendsBound() == null || Object.class.getName().equals(wildcardType.getExtendsBound().toString())) {
+                return "?";
+            }
+
+            final String boundName = getTypeName(processingEnv, wildcardType.getExtendsBound());
+
+            return boundName != null ? "? extends " + boundName : null;
+        }
+
+        if (typeMirror.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        final String rawName = processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) typeMirror).asElement()).toString();
+        final List<? extends TypeMirror> typeArguments = ((DeclaredType) typeMirror).getTypeArguments();
+
+        if (typeArguments.isEmpty()) {
+            return rawName;
+        }
+
+        final StringBuilder typeName = new StringBuilder(rawName).append('<');
+        boolean wildcards = true;
+
+        for (int i = 0; i < typeArguments.size(); i++) {
+            final String typeArgumentName = getTypeName(processingEnv, typeArguments.get(i));
+
+            if (typeArgumentName == null) {
+                return null;
+            }
+
+            typeName.append(i > 0 ? "," : "").append(typeArgumentName);
+            wildcards &= "?".equals(typeArgumentName);
+        }
+
+        // A type with only unbounded wildcards is any type of its class.
+        return wildcards ? rawName : typeName.append('>').toString();
+    }
+
+    private static List<TypeMirror> getServiceTypes(final ProcessingEnvironment processingEnv, final TypeElement provider) {
+        final List<TypeMirror> serviceTypes = new ArrayList<TypeMirror>();
+        final AnnotationMirror serviceAnnotationMirror = getAnnotationMirror(provider, Service.class);
+
+        if (serviceAnnotationMirror == null) {
+            return serviceTypes;
+        }
+
+        final AnnotationDescriptor annotationDescriptor = new AnnotationDescriptor(processingEnv, serviceAnnotationMirror, new String[] { "value" }, new Object[] { Auto.class });
+        final String valueType = annotationDescriptor.getValue("value", String.class);
+
+        if (!Auto.class.getName().equals(valueType)) {
+            // A named service keeps the type arguments the provider gives it,
+            // which are found among the providers super types.
+            final TypeElement valueTypeElement = processingEnv.getElementUtils().getTypeElement(valueType);
+            final Deque<TypeMirror> superTypes = new ArrayDeque<TypeMirror>();
+
+            superTypes.add(provider.asType());
+
+            while (!superTypes.isEmpty()) {
+                final TypeMirror superType = superTypes.poll();
+
+                if (valueTypeElement != null && valueTypeElement.equals(processingEnv.getTypeUtils().asElement(superType))) {
+                    serviceTypes.add(superType);
+
+                    return serviceTypes;
+                }
+
+                superTypes.addAll(processingEnv.getTypeUtils().directSupertypes(superType));
+            }
+
+            // The service is not a super type of the provider, and is described
+            // by its class alone.
+            serviceTypes.add(null);
+
+            return serviceTypes;
+        }
+
+        for (final TypeMirror superType : processingEnv.getTypeUtils().directSupertypes(provider.asType())) {
+            if (processingEnv.getTypeUtils().asElement(superType).getKind() == ElementKind.INTERFACE) {
+                serviceTypes.add(superType);
+            }
+        }
+
+        if (serviceTypes.isEmpty()) {
+            for (final TypeMirror superType : processingEnv.getTypeUtils().directSupertypes(provider.asType())) {
+                for (final TypeMirror superInterfaceType : processingEnv.getTypeUtils().directSupertypes(superType)) {
+                    if (processingEnv.getTypeUtils().asElement(superInterfaceType).getKind() == ElementKind.INTERFACE) {
+                        serviceTypes.add(superInterfaceType);
+                    }
+                }
+
+                if (!serviceTypes.isEmpty()) {
+                    break;
+                }
+            }
+        }
+
+        // Interfaces of the platform are rarely the service of a provider,
+        // and would make it a provider of every Serializable or Comparable
+        // service.
+        final List<TypeMirror> platformTypes = new ArrayList<TypeMirror>();
+
+        for (final Iterator<TypeMirror> serviceTypeIterator = serviceTypes.iterator(); serviceTypeIterator.hasNext();) {
+            final TypeMirror serviceType = serviceTypeIterator.next();
+
+            if (isPlatformType(processingEnv, serviceType)) {
+                platformTypes.add(serviceType);
+                serviceTypeIterator.remove();
+            }
+        }
+
+        if (serviceTypes.isEmpty() && !platformTypes.isEmpty()) {
+            serviceTypes.add(platformTypes.get(0));
+        }
+
+        // A provider without a service is still described, and then found to
+        // be invalid.
+        if (serviceTypes.isEmpty()) {
+            serviceTypes.add(null);
+        }
+
+        return serviceTypes;
+    }
+
+    private static boolean isPlatformType(final ProcessingEnvironment processingEnv, final TypeMirror typeMirror) {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(processingEnv.getTypeUtils().asElement(typeMirror)).getQualifiedName().toString();
+
+        return packageName.equals("java") || packageName.startsWith("java.") || packageName.equals("javax") || packageName.startsWith("javax.");
+    }
+
+    private static ClassDescriptor[] getConstructorParameters(final ProcessingEnvironment processingEnv, final TypeElement provider) {
+        ExecutableElement injectedConstructor = null;
+
+        for (final ExecutableElement constructor : ElementFilter.constructorsIn(provider.getEnclosedElements())) {
+            if (constructor.getAnnotation(Inject.class) == null) {
+                continue;
+            }
+
+            if (injectedConstructor != null) {
+                processingEnv.getMessager().printMessage(WARNING, "Only one constructor may be injected, ignoring", constructor);
+
+                continue;
+            }
+
+            injectedConstructor = constructor;
+        }
+
+        if (injectedConstructor == null) {
+            return null;
+        }
+
+        final List<? extends VariableElement> parameters = injectedConstructor.getParameters();
+        final ClassDescriptor[] parameterDescriptors = new ClassDescriptor[parameters.size()];
+
+        for (int i = 0; i < parameterDescriptors.length; i++) {
+            final TypeMirror parameterType = processingEnv.getTypeUtils().erasure(parameters.get(i).asType());
+
+            // Classes are described by the name Class.getName gives them, so
+            // that nested classes and arrays can be loaded at runtime.
+            if (parameterType.getKind().isPrimitive()) {
+                parameterDescriptors[i] = new ClassDescriptor(parameterType.toString());
+            } else if (parameterType.getKind() == TypeKind.ARRAY) {
+                parameterDescriptors[i] = new ClassDescriptor(getDescriptor(processingEnv, parameterType));
+            } else {
+                parameterDescriptors[i] = new ClassDescriptor(processingEnv.getElementUtils().getBinaryName((TypeElement) processingEnv.getTypeUtils().asElement(parameterType)).toString());
+            }
+        }
+
+        return parameterDescriptors;
+    }
+
+    private static String getDescriptor(final ProcessingEnvironment processingEnv, final TypeMirror typeMirror) {
+        switch (typeMirror.getKind()) {
+        case BOOLEAN:
+            return "Z";
+        case BYTE:
+            return "B";
+        case CHAR:
+            return "C";
+        case SHORT:
+            return "S";
+        case INT:
+            return "I";
+        case LONG:
+            return "J";
+        case FLOAT:
+            return "F";
+        case DOUBLE:
+            return "D";
+        case ARRAY:
+            return "[" + getDescriptor(processingEnv, ((ArrayType) typeMirror).getComponentType());
+        default:
+            return "L" + processingEnv.getElementUtils().getBinaryName((TypeElement) processingEnv.getTypeUtils().asElement(typeMirror)) + ";";
+        }
+    }
+
     private static AnnotationMirror getAnnotationMirror(final TypeElement typeElement, final Class<?> annotation) {
         final String annotationName = annotation.getName();
 
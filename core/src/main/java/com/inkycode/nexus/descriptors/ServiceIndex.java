@@ -0,0 +1,161 @@
+package com.inkycode.nexus.descriptors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inkycode.nexus.Scope;
+
+/**
+ *
+ * Reads and writes the binary service index, a compact form of the services
+ * descriptor which can be loaded at runtime without a JSON parser.
+ *
+ * The index consists of a magic number and format version followed by the
+ * number of service descriptors, and then for each descriptor the service
+ * name, provider name, optional factory name, priority, scope, optional
+ * injected constructor parameter names, optional generic service type name and
+ * optional service name.
+ *
+ */
+public final class ServiceIndex {
+
+    /**
+     * The location of the service index resource.
+     */
+    public static final String RESOURCE = "META-INF/services.idx";
+
+    private static final int MAGIC = 0x4E585349;
+
+    private static final int VERSION = 1;
+
+    // Descriptors are only allocated as they are read, so that a corrupt
+    // count can not allocate more than this up front.
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private ServiceIndex() {
+    }
+
+    /**
+     * Writes the given service descriptors as a service index.
+     *
+     * @param outputStream
+     *            the stream to write the index to.
+     * @param serviceDescriptors
+     *            the service descriptors to write.
+     * @throws IOException
+     *             if the index could not be written.
+     */
+    public static void write(final OutputStream outputStream, final List<ServiceDescriptor> serviceDescriptors) throws IOException {
+        final DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeShort(VERSION);
+        dataOutputStream.writeInt(serviceDescriptors.size());
+
+        for (final ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            dataOutputStream.writeUTF(serviceDescriptor.getService().getName());
+            dataOutputStream.writeUTF(serviceDescriptor.getProvider().getName());
+            dataOutputStream.writeBoolean(serviceDescriptor.getFactory() != null);
+
+            if (serviceDescriptor.getFactory() != null) {
+                dataOutputStream.writeUTF(serviceDescriptor.getFactory().getName());
+            }
+
+            dataOutputStream.writeInt(serviceDescriptor.getPriority());
+            dataOutputStream.writeUTF(serviceDescriptor.getScope().name());
+            dataOutputStream.writeBoolean(serviceDescriptor.getParameters() != null);
+
+            if (serviceDescriptor.getParameters() != null) {
+                dataOutputStream.writeShort(serviceDescriptor.getParameters().length);
+
+                for (final ClassDescriptor parameter : serviceDescriptor.getParameters()) {
+                    dataOutputStream.writeUTF(parameter.getName());
+                }
+            }
+
+            dataOutputStream.writeBoolean(serviceDescriptor.getType() != null);
+
+            if (serviceDescriptor.getType() != null) {
+                dataOutputStream.writeUTF(serviceDescriptor.getType());
+            }
+
+            dataOutputStream.writeBoolean(serviceDescriptor.getName() != null);
+
+            if (serviceDescriptor.getName() != null) {
+                dataOutputStream.writeUTF(serviceDescriptor.getName());
+            }
+        }
+
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Reads the service descriptors from a service index.
+     *
+     * @param inputStream
+     *            the stream to read the index from.
+     * @return the service descriptors.
+     * @throws IOException
+     *             if the index could not be read or is not a valid index.
+     */
+    public static ServiceDescriptor[] read(final InputStream inputStream) throws IOException {
+        final DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+
+        if (dataInputStream.readInt() != MAGIC) {
+            throw new IOException("Not a service index");
+        }
+
+        final int version = dataInputStream.readUnsignedShort();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported service index version " + version);
+        }
+
+        final int count = dataInputStream.readInt();
+
+        if (count < 0) {
+            throw new IOException("Invalid service index count " + count);
+        }
+
+        final List<ServiceDescriptor> serviceDescriptors = new ArrayList<ServiceDescriptor>(Math.min(count, INITIAL_CAPACITY));
+
+        for (int i = 0; i < count; i++) {
+            final ClassDescriptor service = new ClassDescriptor(dataInputStream.readUTF());
+            final ClassDescriptor provider = new ClassDescriptor(dataInputStream.readUTF());
+            final ClassDescriptor factory = dataInputStream.readBoolean() ? new ClassDescriptor(dataInputStream.readUTF()) : null;
+            final int priority = dataInputStream.readInt();
+            final Scope scope = readScope(dataInputStream);
+            final ClassDescriptor[] parameters = dataInputStream.readBoolean() ? new ClassDescriptor[dataInputStream.readUnsignedShort()] : null;
+
+            if (parameters != null) {
+                for (int j = 0; j < parameters.length; j++) {
+                    parameters[j] = new ClassDescriptor(dataInputStream.readUTF());
+                }
+            }
+
+            final String type = dataInputStream.readBoolean() ? dataInputStream.readUTF() : null;
+            final String name = dataInputStream.readBoolean() ? dataInputStream.readUTF() : null;
+
+            serviceDescriptors.add(new ServiceDescriptor(service, provider, factory, priority, scope, parameters, type, name));
+        }
+
+        return serviceDescriptors.toArray(new ServiceDescriptor[serviceDescriptors.size()]);
+    }
+
+    private static Scope readScope(final DataInputStream dataInputStream) throws IOException {
+        final String scope = dataInputStream.readUTF();
+
+        try {
+            return Scope.valueOf(scope);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Unknown service scope " + scope, e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.inkycode.nexus.annotations.Subscribe;
+
+public class EventBusTest {
+
+    private final EventBus eventBus = new EventBus();
+
+    @After
+    public void tearDown() {
+        this.eventBus.close();
+    }
+
+    @Test
+    public void publishesOnCallingThread() {
+        final Listener listener = new Listener();
+
+        this.eventBus.subscribe(listener);
+        this.eventBus.publish("a");
+
+        assertSame(Thread.currentThread(), listener.threads.poll());
+        assertEquals("a", listener.events.poll());
+    }
+
+    @Test
+    public void postsInOrderOnBusThread() throws InterruptedException {
+        final Listener listener = new Listener();
+
+        this.eventBus.subscribe(listener);
+
+        for (int i = 0; i < 1000; i++) {
+            this.eventBus.post(i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, listener.events.poll(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals("nexus-events", listener.threads.poll().getName());
+    }
+
+    @Test
+    public void wakesSleepingBusThread() throws InterruptedException {
+        final Listener listener = new Listener();
+
+        this.eventBus.subscribe(listener);
+        this.eventBus.post("a");
+
+        assertEquals("a", listener.events.poll(5, TimeUnit.SECONDS));
+
+        // Long enough for the buses thread to stop spinning and sleep.
+        Thread.sleep(200);
+
+        this.eventBus.post("b");
+
+        assertEquals("b", listener.events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void restartsBusThreadAfterClose() throws InterruptedException {
+        final Listener listener = new Listener();
+
+        this.eventBus.subscribe(listener);
+        this.eventBus.post("a");
+
+        assertEquals("a", listener.events.poll(5, TimeUnit.SECONDS));
+
+        final Thread thread = listener.threads.poll();
+
+        this.eventBus.close();
+
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+
+        // Closing drops the subscriptions along with the thread.
+        this.eventBus.post("b");
+
+        assertNull(listener.events.poll(200, TimeUnit.MILLISECONDS));
+
+        this.eventBus.subscribe(listener);
+        this.eventBus.post("c");
+
+        assertEquals("c", listener.events.poll(5, TimeUnit.SECONDS));
+
+        final Thread restarted = listener.threads.poll();
+
+        assertNotNull(restarted);
+        assertNotSame(thread, restarted);
+    }
+
+    public static class Listener {
+
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+
+        private final BlockingQueue<Thread> threads = new LinkedBlockingQueue<Thread>();
+
+        @Subscribe
+        public void handle(final Object event) {
+            this.threads.add(Thread.currentThread());
+            this.events.add(event);
+        }
+    }
+
+    // Stands in for the subscriber the annotation processor generates.
+    public static class Listener$$Subscriber implements Subscriber<Listener> {
+
+        @Override
+        public Class<?>[] getEventTypes() {
+            return new Class<?>[] { Object.class };
+        }
+
+        @Override
+        public void dispatch(final Listener instance, final int index, final Object event) {
+            instance.handle(event);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class EventRingTest {
+
+    @Test
+    public void drainsInOrderAcrossLaps() {
+        final EventRing ring = new EventRing(4);
+        final List<Object> events = new ArrayList<Object>();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ring.offer(3 * i));
+            assertTrue(ring.offer(3 * i + 1));
+            assertTrue(ring.offer(3 * i + 2));
+            assertEquals(3, ring.drain(events::add, Integer.MAX_VALUE));
+        }
+
+        assertEquals(30, events.size());
+
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i));
+        }
+
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void rejectsEventsWhenFull() {
+        final EventRing ring = new EventRing(2);
+        final List<Object> events = new ArrayList<Object>();
+
+        assertTrue(ring.offer("a"));
+        assertTrue(ring.offer("b"));
+        assertFalse(ring.offer("c"));
+
+        assertEquals(1, ring.drain(events::add, 1));
+        assertTrue(ring.offer("c"));
+        assertFalse(ring.offer("d"));
+
+        assertEquals(2, ring.drain(events::add, Integer.MAX_VALUE));
+        assertEquals(0, ring.drain(events::add, Integer.MAX_VALUE));
+        assertEquals(3, events.size());
+        assertEquals("a", events.get(0));
+        assertEquals("b", events.get(1));
+        assertEquals("c", events.get(2));
+    }
+
+    @Test
+    public void keepsEachPublishersOrder() throws InterruptedException {
+        final int publishers = 4;
+        final int count = 100000;
+
+        // Far smaller than the number of events, so that publishers wrap
+        // around and wait on the consumer.
+        final EventRing ring = new EventRing(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        for (int p = 0; p < publishers; p++) {
+            final int publisher = p;
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+
+                for (int i = 0; i < count; i++) {
+                    final long event = (long) publisher << 32 | i;
+
+                    while (!ring.offer(event)) {
+                        Thread.yield();
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        final int[] next = new int[publishers];
+        final int[] drained = new int[1];
+
+        start.countDown();
+
+        while (drained[0] < publishers * count) {
+            drained[0] += ring.drain(event -> {
+                final long value = (Long) event;
+                final int publisher = (int) (value >>> 32);
+
+                assertEquals(next[publisher]++, (int) value);
+            }, 256);
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int p = 0; p < publishers; p++) {
+            assertEquals(count, next[p]);
+        }
+
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+
+import com.inkycode.nexus.annotations.Unbind;
+
+public class FactoryBinderTest {
+
+    @Test
+    public void bindsEachProviderItAccepts() {
+        final Factory factory = new Factory();
+        final Circle circle = new Circle();
+        final Square square = new Square();
+
+        FactoryBinder.forClass(Factory.class).bind(factory, Arrays.asList(circle, square));
+
+        assertEquals(Arrays.asList(circle, square), factory.shapes);
+        assertEquals(Collections.singletonList(circle), factory.circles);
+    }
+
+    @Test
+    public void bindsBatchOnceInOrder() {
+        final Factory factory = new Factory();
+        final Circle first = new Circle();
+        final Square square = new Square();
+        final Circle second = new Circle();
+
+        FactoryBinder.forClass(Factory.class).bind(factory, Arrays.asList(first, square, second));
+
+        assertEquals(1, factory.shapeBatches.size());
+        assertEquals(Arrays.asList(first, square, second), factory.shapeBatches.get(0));
+
+        // Only the providers the batch method accepts are passed to it.
+        assertEquals(1, factory.circleBatches.size());
+        assertEquals(Arrays.asList(first, second), factory.circleBatches.get(0));
+    }
+
+    @Test
+    public void skipsEmptyBatches() {
+        final Factory factory = new Factory();
+        final Square square = new Square();
+
+        FactoryBinder.forClass(Factory.class).bind(factory, Collections.singletonList(square));
+
+        assertEquals(1, factory.shapeBatches.size());
+        assertTrue(factory.circleBatches.isEmpty());
+
+        FactoryBinder.forClass(Factory.class).bind(factory, Collections.emptyList());
+
+        assertEquals(1, factory.shapeBatches.size());
+    }
+
+    @Test
+    public void unbindsThroughUnbindMethods() {
+        final Factory factory = new Factory();
+        final Circle circle = new Circle();
+        final Square square = new Square();
+
+        FactoryBinder.forClass(Factory.class).bind(factory, Arrays.asList(circle, square));
+        FactoryBinder.forClass(Factory.class).unbind(factory, Arrays.asList(square, circle));
+
+        assertEquals(Collections.emptyList(), factory.shapes);
+        assertEquals(Collections.singletonList(Arrays.asList(square, circle)), factory.unboundBatches);
+
+        // Unbinding does not pass through the bind methods.
+        assertEquals(1, factory.shapeBatches.size());
+    }
+
+    @Test
+    public void continuesPastFailingMethods() {
+        final FailingFactory factory = new FailingFactory();
+        final Circle circle = new Circle();
+
+        FactoryBinder.forClass(FailingFactory.class).bind(factory, Collections.singletonList(circle));
+
+        assertEquals(Collections.singletonList(circle), factory.shapes);
+    }
+
+    public interface Shape {
+    }
+
+    public static class Circle implements Shape {
+    }
+
+    public static class Square implements Shape {
+    }
+
+    public static class Factory {
+
+        private final List<Shape> shapes = new ArrayList<Shape>();
+
+        private final List<Circle> circles = new ArrayList<Circle>();
+
+        private final List<List<Shape>> shapeBatches = new ArrayList<List<Shape>>();
+
+        private final List<List<Circle>> circleBatches = new ArrayList<List<Circle>>();
+
+        private final List<List<Shape>> unboundBatches = new ArrayList<List<Shape>>();
+
+        @Inject
+        public void bindShape(final Shape shape) {
+            this.shapes.add(shape);
+        }
+
+        @Inject
+        public void bindCircle(final Circle circle) {
+            this.circles.add(circle);
+        }
+
+        @Inject
+        public void bindShapes(final Collection<? extends Shape> shapes) {
+            this.shapeBatches.add(new ArrayList<Shape>(shapes));
+        }
+
+        @Inject
+        public void bindCircles(final List<Circle> circles) {
+            this.circleBatches.add(new ArrayList<Circle>(circles));
+        }
+
+        @Unbind
+        public void unbindShape(final Shape shape) {
+            this.shapes.remove(shape);
+        }
+
+        @Unbind
+        public void unbindShapes(final List<Shape> shapes) {
+            this.unboundBatches.add(new ArrayList<Shape>(shapes));
+        }
+    }
+
+    public static class FailingFactory {
+
+        private final List<Shape> shapes = new ArrayList<Shape>();
+
+        @Inject
+        public void bindShape(final Shape shape) {
+            this.shapes.add(shape);
+        }
+
+        @Inject
+        public void bindShapes(final List<Shape> shapes) {
+            throw new IllegalStateException("Failed to bind");
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.inkycode.nexus.annotations.Activate;
+import com.inkycode.nexus.annotations.Deactivate;
+import com.inkycode.nexus.annotations.Unbind;
+import com.inkycode.nexus.descriptors.ClassDescriptor;
+import com.inkycode.nexus.descriptors.ServiceDescriptor;
+import com.inkycode.nexus.descriptors.ServiceIndex;
+
+public class FrameworkTest {
+
+    // What providers went through, in order, as they can not otherwise be
+    // observed before they are obtained.
+    private static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<String>());
+
+    // The framework under test, for providers which change it.
+    private static Framework current;
+
+    private File root;
+
+    private URLClassLoader classLoader;
+
+    private Framework framework;
+
+    @After
+    public void tearDown() throws IOException {
+        if (this.framework != null) {
+            this.framework.stop();
+        }
+
+        current = null;
+
+        EVENTS.clear();
+
+        if (this.classLoader != null) {
+            this.classLoader.close();
+        }
+
+        if (this.root != null) {
+            new File(this.root, ServiceIndex.RESOURCE).delete();
+            new File(this.root, "META-INF").delete();
+            this.root.delete();
+        }
+    }
+
+    @Test
+    public void sharesProviderOfSeveralServices() throws IOException {
+        this.framework = this.newFramework(descriptor(First.class, Both.class), descriptor(Second.class, Both.class));
+        this.framework.start();
+
+        final First first = this.framework.getService(First.class);
+        final Second second = this.framework.getService(Second.class);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1, ((Both) first).activations);
+    }
+
+    @Test
+    public void keepsProviderOfSeveralServicesUntilUnregisteredFromAll() throws IOException {
+        this.framework = this.newFramework(descriptor(First.class, Both.class), descriptor(Second.class, Both.class));
+        this.framework.start();
+
+        final Both both = (Both) this.framework.getService(First.class);
+
+        assertTrue(this.framework.unregisterService(First.class, Both.class));
+        assertNull(this.framework.getService(First.class));
+        assertSame(both, this.framework.getService(Second.class));
+        assertEquals(0, both.deactivations);
+
+        assertFalse(this.framework.unregisterService(First.class, Both.class));
+        assertTrue(this.framework.unregisterService(Second.class, Both.class));
+        assertNull(this.framework.getService(Second.class));
+        assertEquals(1, both.deactivations);
+    }
+
+    @Test
+    public void bindsLazyProvidersBeforeActivatingThem() throws IOException {
+        this.framework = this.newFramework(descriptor(Plugin.class, FirstPlugin.class), descriptor(Registry.class, PluginRegistry.class, Plugin.class), descriptor(Unused.class, UnusedProvider.class));
+        this.framework.setLazy(true);
+        this.framework.start();
+
+        // The first plugin registers the second from its activation, which
+        // unregisters a provider which was never constructed.
+        assertEquals(Arrays.asList("construct FirstPlugin", "construct PluginRegistry", "bind FirstPlugin"), EVENTS.subList(0, 3));
+        assertTrue(EVENTS.indexOf("activate FirstPlugin") > 2);
+        assertTrue(EVENTS.indexOf("activate PluginRegistry") > 2);
+        assertTrue(EVENTS.indexOf("activate SecondPlugin") > EVENTS.indexOf("bind SecondPlugin"));
+        assertTrue(EVENTS.indexOf("bind SecondPlugin") > EVENTS.indexOf("activate FirstPlugin"));
+        assertFalse(EVENTS.contains("construct UnusedProvider"));
+        assertNull(this.framework.getService(Unused.class));
+
+        final PluginRegistry registry = (PluginRegistry) this.framework.getService(Registry.class);
+
+        assertEquals(2, registry.plugins.size());
+
+        assertTrue(this.framework.unregisterService(Plugin.class, SecondPlugin.class));
+        assertEquals(1, registry.plugins.size());
+        assertTrue(EVENTS.indexOf("deactivate SecondPlugin") > EVENTS.indexOf("unbind SecondPlugin"));
+    }
+
+    @Test
+    public void neitherBindsNorDeactivatesLazyProvidersNeverConstructed() throws IOException {
+        this.framework = this.newFramework(descriptor(Registry.class, PluginRegistry.class, Plugin.class), descriptor(Unused.class, UnusedProvider.class));
+        this.framework.setLazy(true);
+        this.framework.start();
+
+        assertTrue(this.framework.unregisterService(Unused.class, UnusedProvider.class));
+        assertTrue(EVENTS.isEmpty());
+
+        this.framework.stop();
+
+        assertTrue(EVENTS.isEmpty());
+    }
+
+    @Test
+    public void activatesDependenciesFirstAndDeactivatesThemLast() throws IOException {
+        this.framework = this.newFramework(descriptor(Car.class, CarProvider.class), descriptor(Engine.class, EngineProvider.class));
+        this.framework.start(ForkJoinPool.commonPool());
+
+        assertEquals(Arrays.asList("activate EngineProvider", "activate CarProvider"), EVENTS);
+
+        final CarProvider car = (CarProvider) this.framework.getService(Car.class);
+
+        assertSame(this.framework.getService(Engine.class), car.engine);
+
+        EVENTS.clear();
+
+        assertTrue(this.framework.stop(ForkJoinPool.commonPool(), 10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("deactivate CarProvider", "deactivate EngineProvider"), EVENTS);
+        assertNull(this.framework.getService(Car.class));
+    }
+
+    @Test
+    public void rejectsRegistrationFromConstructors() throws IOException {
+        this.framework = this.newFramework(descriptor(Greedy.class, GreedyProvider.class));
+        this.framework.start();
+
+        assertEquals(Collections.singletonList("rejected"), EVENTS);
+        assertNotNull(this.framework.getService(Greedy.class));
+        assertNull(this.framework.getService(Unused.class));
+    }
+
+    @Test
+    public void createsPrototypesForEveryCaller() throws IOException {
+        this.framework = this.newFramework(descriptor(Counter.class, CounterProvider.class, null, Scope.PROTOTYPE));
+        this.framework.start();
+
+        final Counter first = this.framework.getService(Counter.class);
+        final Counter second = this.framework.getService(Counter.class);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertFalse(first == second);
+    }
+
+    @Test
+    public void sharesThreadScopedProvidersWithinThread() throws IOException, InterruptedException {
+        this.framework = this.newFramework(descriptor(Counter.class, CounterProvider.class, null, Scope.THREAD));
+        this.framework.start();
+
+        final Counter counter = this.framework.getService(Counter.class);
+        final Counter[] otherCounter = new Counter[1];
+        final Thread thread = new Thread(() -> otherCounter[0] = this.framework.getService(Counter.class));
+
+        thread.start();
+        thread.join();
+
+        assertNotNull(counter);
+        assertSame(counter, this.framework.getService(Counter.class));
+        assertNotNull(otherCounter[0]);
+        assertFalse(counter == otherCounter[0]);
+    }
+
+    @Test
+    public void sharesRequestScopedProvidersWithinRequest() throws IOException {
+        this.framework = this.newFramework(descriptor(Counter.class, CounterProvider.class, null, Scope.REQUEST));
+        this.framework.start();
+
+        final Counter counter;
+
+        try (RequestScope requestScope = this.framework.openRequestScope()) {
+            counter = this.framework.getService(Counter.class);
+
+            assertNotNull(counter);
+            assertSame(counter, this.framework.getService(Counter.class));
+        }
+
+        try (RequestScope requestScope = this.framework.openRequestScope()) {
+            assertFalse(counter == this.framework.getService(Counter.class));
+        }
+    }
+
+    private Framework newFramework(final ServiceDescriptor... serviceDescriptors) throws IOException {
+        this.root = Files.createTempDirectory("nexus").toFile();
+
+        final File index = new File(this.root, ServiceIndex.RESOURCE);
+
+        index.getParentFile().mkdirs();
+
+        try (OutputStream outputStream = new FileOutputStream(index)) {
+            ServiceIndex.write(outputStream, Arrays.asList(serviceDescriptors));
+        }
+
+        this.classLoader = new URLClassLoader(new URL[] { this.root.toURI().toURL() }, FrameworkTest.class.getClassLoader());
+
+        current = Framework.newInstance(this.classLoader);
+
+        return current;
+    }
+
+    private static ServiceDescriptor descriptor(final Class<?> service, final Class<?> provider) {
+        return descriptor(service, provider, null);
+    }
+
+    private static ServiceDescriptor descriptor(final Class<?> service, final Class<?> provider, final Class<?> factory) {
+        return descriptor(service, provider, factory, Scope.SINGLETON);
+    }
+
+    private static ServiceDescriptor descriptor(final Class<?> service, final Class<?> provider, final Class<?> factory, final Scope scope) {
+        return new ServiceDescriptor(new ClassDescriptor(service.getName()), new ClassDescriptor(provider.getName()), factory != null ? new ClassDescriptor(factory.getName()) : null, 0, scope, null, null, null);
+    }
+
+    public interface First {
+    }
+
+    public interface Second {
+    }
+
+    public static class Both implements First, Second {
+
+        private int activations;
+
+        private int deactivations;
+
+        @Activate
+        public void activate() {
+            this.activations++;
+        }
+
+        @Deactivate
+        public void deactivate() {
+            this.deactivations++;
+        }
+    }
+
+    public interface Plugin {
+    }
+
+    public interface Registry {
+    }
+
+    public interface Unused {
+    }
+
+    public static class FirstPlugin implements Plugin {
+
+        public FirstPlugin() {
+            EVENTS.add("construct FirstPlugin");
+        }
+
+        @Activate
+        public void activate() {
+            EVENTS.add("activate FirstPlugin");
+
+            current.registerService(Plugin.class, SecondPlugin.class, 0);
+        }
+    }
+
+    public static class SecondPlugin implements Plugin {
+
+        public SecondPlugin() {
+            EVENTS.add("construct SecondPlugin");
+        }
+
+        @Activate
+        public void activate() {
+            EVENTS.add("activate SecondPlugin");
+
+            current.unregisterService(Unused.class, UnusedProvider.class);
+        }
+
+        @Deactivate
+        public void deactivate() {
+            EVENTS.add("deactivate SecondPlugin");
+        }
+    }
+
+    public static class PluginRegistry implements Registry {
+
+        private final List<Plugin> plugins = new ArrayList<Plugin>();
+
+        public PluginRegistry() {
+            EVENTS.add("construct PluginRegistry");
+        }
+
+        @Inject
+        public void bind(final Plugin plugin) {
+            EVENTS.add("bind " + plugin.getClass().getSimpleName());
+
+            this.plugins.add(plugin);
+        }
+
+        @Unbind
+        public void unbind(final Plugin plugin) {
+            EVENTS.add("unbind " + plugin.getClass().getSimpleName());
+
+            this.plugins.remove(plugin);
+        }
+
+        @Activate
+        public void activate() {
+            EVENTS.add("activate PluginRegistry");
+        }
+    }
+
+    public static class UnusedProvider implements Unused {
+
+        public UnusedProvider() {
+            EVENTS.add("construct UnusedProvider");
+        }
+
+        @Deactivate
+        public void deactivate() {
+            EVENTS.add("deactivate UnusedProvider");
+        }
+    }
+
+    public interface Engine {
+    }
+
+    public interface Car {
+    }
+
+    public interface Greedy {
+    }
+
+    public static class EngineProvider implements Engine {
+
+        @Activate
+        public void activate() throws InterruptedException {
+            // Slow enough for the car to be activated first, were it not
+            // waiting for the engine.
+            Thread.sleep(100);
+
+            EVENTS.add("activate EngineProvider");
+        }
+
+        @Deactivate
+        public void deactivate() {
+            EVENTS.add("deactivate EngineProvider");
+        }
+    }
+
+    public static class CarProvider implements Car {
+
+        @Inject
+        private Engine engine;
+
+        @Activate
+        public void activate() {
+            EVENTS.add("activate CarProvider");
+        }
+
+        @Deactivate
+        public void deactivate() throws InterruptedException {
+            Thread.sleep(100);
+
+            EVENTS.add("deactivate CarProvider");
+        }
+    }
+
+    public static class GreedyProvider implements Greedy {
+
+        public GreedyProvider() {
+            try {
+                current.registerService(Unused.class, UnusedProvider.class, 0);
+            } catch (final IllegalStateException e) {
+                EVENTS.add("rejected");
+            }
+        }
+    }
+
+    public interface Counter {
+    }
+
+    public static class CounterProvider implements Counter {
+    }
+}
@@ -0,0 +1,104 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MethodCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedResult() {
+        final CacheStats stats = new CacheStats();
+        final MethodCache methodCache = new MethodCache(2, 0, stats);
+
+        methodCache.put("a", "A");
+        methodCache.put("b", "B");
+
+        // Reading a makes b the least recently used result.
+        assertEquals("A", methodCache.get("a"));
+
+        methodCache.put("c", "C");
+
+        assertEquals(2, methodCache.size());
+        assertEquals("A", methodCache.get("a"));
+        assertSame(MethodCache.MISSING, methodCache.get("b"));
+        assertEquals("C", methodCache.get("c"));
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(3, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    public void expiresResultsAfterWrite() throws InterruptedException {
+        final MethodCache methodCache = new MethodCache(16, TimeUnit.MILLISECONDS.toNanos(1), new CacheStats());
+
+        methodCache.put("a", "A");
+
+        Thread.sleep(10);
+
+        assertSame(MethodCache.MISSING, methodCache.get("a"));
+        assertEquals(0, methodCache.size());
+    }
+
+    @Test
+    public void keepsResultsWithoutExpiry() {
+        final MethodCache methodCache = new MethodCache(16, 0, new CacheStats());
+
+        methodCache.put("a", "A");
+
+        assertEquals("A", methodCache.get("a"));
+    }
+
+    @Test
+    public void cachesNullResults() {
+        final CacheStats stats = new CacheStats();
+        final MethodCache methodCache = new MethodCache(16, 0, stats);
+
+        methodCache.put(MethodCache.key((Object) null), null);
+
+        assertNull(methodCache.get(MethodCache.key((Object) null)));
+        assertEquals(1, stats.getHitCount());
+        assertSame(MethodCache.MISSING, methodCache.get(MethodCache.key()));
+    }
+
+    @Test
+    public void comparesArrayArgumentsByElements() {
+        final MethodCache methodCache = new MethodCache(16, 0, new CacheStats());
+
+        methodCache.put(MethodCache.key(new int[] { 1, 2 }), "single");
+        methodCache.put(MethodCache.key(new String[] { "a" }, 3), "several");
+
+        assertEquals("single", methodCache.get(MethodCache.key(new int[] { 1, 2 })));
+        assertEquals("several", methodCache.get(MethodCache.key(new String[] { "a" }, 3)));
+        assertSame(MethodCache.MISSING, methodCache.get(MethodCache.key(new int[] { 2, 1 })));
+        assertSame(MethodCache.MISSING, methodCache.get(MethodCache.key(new String[] { "a" }, 4)));
+    }
+
+    @Test
+    public void stripesOnlyLargeCaches() {
+        assertEquals(1, new MethodCache(1, 0, new CacheStats()).getStripeCount());
+        assertEquals(1, new MethodCache(63, 0, new CacheStats()).getStripeCount());
+        assertEquals(2, new MethodCache(64, 0, new CacheStats()).getStripeCount());
+        assertEquals(16, new MethodCache(1 << 20, 0, new CacheStats()).getStripeCount());
+    }
+
+    @Test
+    public void boundsStripedCaches() {
+        final MethodCache methodCache = new MethodCache(256, 0, new CacheStats());
+
+        for (int i = 0; i < 10000; i++) {
+            methodCache.put(i, i);
+        }
+
+        // Each stripe holds an equal share of the maximum size.
+        assertEquals(256, methodCache.size());
+
+        methodCache.invalidateAll();
+
+        assertEquals(0, methodCache.size());
+    }
+}
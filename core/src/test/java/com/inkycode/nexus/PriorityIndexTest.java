@@ -0,0 +1,116 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PriorityIndexTest {
+
+    @Test
+    public void ordersHigherPrioritiesFirst() {
+        final PriorityIndex<String> index = new PriorityIndex<String>();
+
+        index.add("zero", 0, 0);
+        index.add("min", Integer.MIN_VALUE, 1);
+        index.add("max", Integer.MAX_VALUE, 2);
+        index.add("negative", -1, 3);
+        index.add("positive", 1, 4);
+
+        assertArrayEquals(new String[] { "max", "positive", "zero", "negative", "min" }, index.toArray(new String[index.size()]));
+        assertEquals("max", index.first());
+    }
+
+    @Test
+    public void ordersEqualPrioritiesByRegistration() {
+        final PriorityIndex<String> index = new PriorityIndex<String>();
+
+        index.add("third", 5, 3);
+        index.add("first", 5, 1);
+        index.add("higher", 6, 4);
+        index.add("second", 5, 2);
+
+        assertArrayEquals(new String[] { "higher", "first", "second", "third" }, index.toArray(new String[index.size()]));
+    }
+
+    @Test
+    public void ordersSequencesAsUnsigned() {
+        final PriorityIndex<String> index = new PriorityIndex<String>();
+
+        // Sequences past Integer.MAX_VALUE wrap to negative ints, but were
+        // still registered later.
+        index.add("later", 0, Integer.MIN_VALUE);
+        index.add("earlier", 0, Integer.MAX_VALUE);
+
+        assertEquals("earlier", index.first());
+    }
+
+    @Test
+    public void iteratesInOrder() {
+        final PriorityIndex<String> index = new PriorityIndex<String>();
+        final List<String> elements = new ArrayList<String>();
+
+        for (int i = 0; i < 100; i++) {
+            index.add(Integer.toString(i), i % 10, i);
+        }
+
+        for (final String element : index) {
+            elements.add(element);
+        }
+
+        assertEquals(100, elements.size());
+        assertEquals("9", elements.get(0));
+        assertEquals("19", elements.get(1));
+        assertEquals("0", elements.get(90));
+        assertEquals("90", elements.get(99));
+    }
+
+    @Test
+    public void removesByIdentity() {
+        final PriorityIndex<String> index = new PriorityIndex<String>();
+        final String element = new String("a");
+
+        index.add(new String("a"), 1, 0);
+        index.add(element, 0, 1);
+
+        assertTrue(index.remove(element));
+        assertFalse(index.remove(element));
+        assertEquals(1, index.size());
+        assertEquals("a", index.first());
+    }
+
+    @Test
+    public void removesMatchingAndKeepsOrder() {
+        final PriorityIndex<Integer> index = new PriorityIndex<Integer>();
+
+        for (int i = 0; i < 10; i++) {
+            index.add(i, i, i);
+        }
+
+        assertTrue(index.removeIf(i -> i % 2 == 0));
+        assertFalse(index.removeIf(i -> i % 2 == 0));
+        assertArrayEquals(new Integer[] { 9, 7, 5, 3, 1 }, index.toArray(new Integer[index.size()]));
+
+        index.add(4, 4, 10);
+
+        assertArrayEquals(new Integer[] { 9, 7, 5, 4, 3, 1 }, index.toArray(new Integer[index.size()]));
+    }
+
+    @Test
+    public void emptiesIndex() {
+        final PriorityIndex<String> index = new PriorityIndex<String>();
+
+        index.add("a", 0, 0);
+
+        assertTrue(index.remove("a"));
+        assertTrue(index.isEmpty());
+        assertNull(index.first());
+        assertFalse(index.iterator().hasNext());
+    }
+}
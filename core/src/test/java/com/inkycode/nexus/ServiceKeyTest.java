@@ -0,0 +1,102 @@
+package com.inkycode.nexus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ServiceKeyTest {
+
+    @Test
+    public void internsKeysOfClass() {
+        assertSame(ServiceKey.of(Marker.class), ServiceKey.of(Marker.class));
+        assertSame(ServiceKey.of(Marker.class), ServiceKey.of(Marker.class, null));
+        assertSame(ServiceKey.of(Marker.class, "a"), ServiceKey.of(Marker.class, "a"));
+        assertSame(ServiceKey.of(Marker.class), ServiceKey.of(Marker.class, Marker.class.getName(), null));
+        assertNotEquals(ServiceKey.of(Marker.class), ServiceKey.of(Marker.class, "a"));
+        assertNotEquals(ServiceKey.of(Marker.class, "a"), ServiceKey.of(Marker.class, "b"));
+    }
+
+    @Test
+    public void internsKeysOfTypes() {
+        final ServiceKey<List<String>> key = new ServiceKey<List<String>>() {
+        };
+
+        assertTrue(key.isParameterized());
+        assertEquals("java.util.List<java.lang.String>", key.getTypeName());
+        assertEquals(key, ServiceKey.of(List.class, "java.util.List<java.lang.String>", null));
+        assertEquals(key.hashCode(), ServiceKey.of(List.class, "java.util.List<java.lang.String>", null).hashCode());
+        assertNotEquals(key, ServiceKey.of(List.class));
+        assertNotEquals(key, new ServiceKey<List<String>>("a") {
+        });
+
+        // A type of only unbounded wildcards is any type of its class.
+        assertEquals(ServiceKey.of(List.class), new ServiceKey<List<?>>() {
+        });
+    }
+
+    @Test
+    public void separatesClassesOfClassLoaders() throws IOException, ClassNotFoundException {
+        final URL location = ServiceKeyTest.class.getProtectionDomain().getCodeSource().getLocation();
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { location }, null)) {
+            final Class<?> marker = classLoader.loadClass(Marker.class.getName());
+
+            assertFalse(marker == Marker.class);
+            assertEquals(Marker.class.getName(), ServiceKey.of(marker).getTypeName());
+            assertSame(ServiceKey.of(marker), ServiceKey.of(marker));
+            assertSame(ServiceKey.of(marker, "a"), ServiceKey.of(marker, "a"));
+            assertNotEquals(ServiceKey.of(Marker.class), ServiceKey.of(marker));
+            assertNotEquals(ServiceKey.of(Marker.class, "a"), ServiceKey.of(marker, "a"));
+        }
+    }
+
+    @Test
+    public void givesEachFrameworkItsOwnIds() {
+        final ServiceKey.Ids first = new ServiceKey.Ids();
+        final ServiceKey.Ids second = new ServiceKey.Ids();
+        final ServiceKey<?> a = ServiceKey.of(Marker.class, "ids-a");
+        final ServiceKey<?> b = ServiceKey.of(Marker.class, "ids-b");
+
+        assertEquals(-1, first.get(a));
+        assertEquals(0, first.register(a));
+        assertEquals(1, first.register(b));
+        assertEquals(0, first.register(a));
+        assertEquals(0, second.register(b));
+
+        // Alternates between the frameworks, so each finds its own id even
+        // when the key remembers the others.
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, first.get(a));
+            assertEquals(1, first.get(b));
+            assertEquals(0, second.get(b));
+            assertEquals(-1, second.get(a));
+        }
+    }
+
+    @Test
+    public void givesKeysOfSameTypeSameId() {
+        final ServiceKey.Ids ids = new ServiceKey.Ids();
+
+        assertEquals(0, ids.register(ServiceKey.of(List.class, "java.util.List<java.lang.Integer>", null)));
+        assertEquals(0, ids.get(new ServiceKey<List<Integer>>() {
+        }));
+    }
+
+    @Test
+    public void rejectsTypesWhichCanNotIdentifyServices() {
+        assertNull(ServiceKey.of(Marker.class.getTypeParameters().length > 0 ? null : List.class.getTypeParameters()[0], null));
+    }
+
+    public interface Marker {
+    }
+}
@@ -0,0 +1,148 @@
+package com.inkycode.nexus.descriptors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.inkycode.nexus.Scope;
+
+public class ServiceIndexTest {
+
+    private static final int MAGIC = 0x4E585349;
+
+    private static final int VERSION = 1;
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        final ServiceDescriptor full = new ServiceDescriptor(new ClassDescriptor("a.Service"), new ClassDescriptor("a.Provider"), new ClassDescriptor("a.Factory"), -7, Scope.THREAD, new ClassDescriptor[] { new ClassDescriptor("a.Dependency"), new ClassDescriptor("java.util.List") }, "a.Service<java.lang.String>", "primary");
+        final ServiceDescriptor plain = new ServiceDescriptor(new ClassDescriptor("b.Service"), new ClassDescriptor("b.Provider"), null, Integer.MAX_VALUE, Scope.SINGLETON, null, null, null);
+
+        final ServiceDescriptor[] serviceDescriptors = read(write(full, plain));
+
+        assertEquals(2, serviceDescriptors.length);
+        assertDescriptor(full, serviceDescriptors[0]);
+        assertDescriptor(plain, serviceDescriptors[1]);
+    }
+
+    @Test
+    public void roundTripsEmptyIndex() throws IOException {
+        assertEquals(0, read(write()).length);
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        assertInvalid("{\"service\":\"a.Service\"}".getBytes());
+    }
+
+    @Test
+    public void rejectsUnsupportedVersions() throws IOException {
+        assertInvalid(headerOnly(VERSION - 1, 0));
+        assertInvalid(headerOnly(VERSION + 1, 0));
+    }
+
+    @Test
+    public void rejectsNegativeCount() throws IOException {
+        assertInvalid(headerOnly(VERSION, -1));
+    }
+
+    @Test(expected = EOFException.class)
+    public void rejectsCountBeyondContent() throws IOException {
+        read(headerOnly(VERSION, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void rejectsUnknownScope() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = header(bytes, VERSION, 1);
+
+        out.writeUTF("a.Service");
+        out.writeUTF("a.Provider");
+        out.writeBoolean(false);
+        out.writeInt(0);
+        out.writeUTF("SESSION");
+
+        assertInvalid(bytes.toByteArray());
+    }
+
+    @Test(expected = EOFException.class)
+    public void rejectsTruncatedIndex() throws IOException {
+        final byte[] bytes = write(new ServiceDescriptor(new ClassDescriptor("a.Service"), new ClassDescriptor("a.Provider"), null, 0, Scope.SINGLETON, null, "a.Service<a.Type>", "name"));
+
+        read(Arrays.copyOf(bytes, bytes.length - 3));
+    }
+
+    private static byte[] write(final ServiceDescriptor... serviceDescriptors) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ServiceIndex.write(bytes, serviceDescriptors.length > 0 ? Arrays.asList(serviceDescriptors) : Collections.<ServiceDescriptor> emptyList());
+
+        return bytes.toByteArray();
+    }
+
+    private static ServiceDescriptor[] read(final byte[] bytes) throws IOException {
+        return ServiceIndex.read(new ByteArrayInputStream(bytes));
+    }
+
+    private static DataOutputStream header(final ByteArrayOutputStream bytes, final int version, final int count) throws IOException {
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeShort(version);
+        out.writeInt(count);
+
+        return out;
+    }
+
+    private static byte[] headerOnly(final int version, final int count) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        header(bytes, version, count);
+
+        return bytes.toByteArray();
+    }
+
+    private static void assertInvalid(final byte[] bytes) {
+        try {
+            read(bytes);
+
+            fail("Expected an invalid service index");
+        } catch (final IOException e) {
+            // Expected, any failure to read an index is reported as an
+            // IOException.
+        }
+    }
+
+    private static void assertDescriptor(final ServiceDescriptor expected, final ServiceDescriptor actual) {
+        assertEquals(expected.getService().getName(), actual.getService().getName());
+        assertEquals(expected.getProvider().getName(), actual.getProvider().getName());
+        assertEquals(getName(expected.getFactory()), getName(actual.getFactory()));
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(expected.getScope(), actual.getScope());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getName(), actual.getName());
+
+        if (expected.getParameters() == null) {
+            assertNull(actual.getParameters());
+        } else {
+            assertEquals(expected.getParameters().length, actual.getParameters().length);
+
+            for (int i = 0; i < expected.getParameters().length; i++) {
+                assertEquals(expected.getParameters()[i].getName(), actual.getParameters()[i].getName());
+            }
+        }
+    }
+
+    private static String getName(final ClassDescriptor classDescriptor) {
+        return classDescriptor != null ? classDescriptor.getName() : null;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 import javax.inject.Inject;
 
 import com.inkycode.nexus.annotations.Service;
+import com.inkycode.nexus.annotations.Unbind;
 import com.inkycode.nexus.services.GreeterService;
 import com.inkycode.nexus.services.GreetingService;
 
@@ -26,4 +27,9 @@ public class GreeterServiceImpl implements GreeterService {
         this.greetings.put(greeting.getClass(), greeting);
     }
 
+    @Unbind
+    public void removeGreeting(final GreetingService greeting) {
+        this.greetings.remove(greeting.getClass());
+    }
+
 }